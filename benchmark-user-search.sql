@@ -0,0 +1,89 @@
+-- Benchmark for the SQL user search (UserRepository.searchUsers vs searchUsersIndexed)
+-- Builds a scratch copy of users/departments in schema search_bench, so the real data is untouched.
+--
+-- Run for each size, e.g.:
+--   psql -d userdb -v rows=100000  -f benchmark-user-search.sql
+--   psql -d userdb -v rows=1000000 -f benchmark-user-search.sql
+-- Compare "Execution Time" of each EXPLAIN block. Requires pg_trgm (see V5 migration).
+
+\timing on
+\set ON_ERROR_STOP on
+
+DROP SCHEMA IF EXISTS search_bench CASCADE;
+CREATE SCHEMA search_bench;
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE TABLE search_bench.departments (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE search_bench.users (
+    id BIGSERIAL PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    department_id BIGINT NOT NULL REFERENCES search_bench.departments(id)
+);
+
+INSERT INTO search_bench.departments (name)
+SELECT 'Department ' || g FROM generate_series(1, 50) g;
+
+INSERT INTO search_bench.users (name, email, department_id)
+SELECT 'User ' || md5(g::text),
+       'user' || g || '@example.com',
+       1 + (g % 50)
+FROM generate_series(1, :rows) g;
+
+ANALYZE search_bench.departments;
+ANALYZE search_bench.users;
+
+-- 1. Before: the original JPQL shape (OR across the join, STR(id) LIKE) - no usable index
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM search_bench.users u JOIN search_bench.departments d ON d.id = u.department_id
+WHERE lower(u.name) LIKE '%abc12%'
+   OR lower(u.email) LIKE '%abc12%'
+   OR lower(d.name) LIKE '%abc12%'
+   OR CAST(u.id AS TEXT) LIKE '%abc12%'
+ORDER BY u.id
+LIMIT 20;
+
+-- 2. After, without trigram indexes: the UNION shape alone
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM search_bench.users u WHERE u.id IN (
+    SELECT id FROM search_bench.users WHERE lower(name) LIKE '%abc12%'
+    UNION SELECT id FROM search_bench.users WHERE lower(email) LIKE '%abc12%'
+    UNION SELECT u2.id FROM search_bench.users u2 JOIN search_bench.departments d ON d.id = u2.department_id
+          WHERE lower(d.name) LIKE '%abc12%'
+    UNION SELECT id FROM search_bench.users WHERE id = -1)
+ORDER BY u.id
+LIMIT 20;
+
+CREATE INDEX idx_bench_users_name_trgm ON search_bench.users USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX idx_bench_users_email_trgm ON search_bench.users USING gin (lower(email) gin_trgm_ops);
+CREATE INDEX idx_bench_departments_name_trgm ON search_bench.departments USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX idx_bench_users_department_id ON search_bench.users(department_id);
+ANALYZE search_bench.users;
+
+-- 3. After, with the V5 indexes: selective term
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM search_bench.users u WHERE u.id IN (
+    SELECT id FROM search_bench.users WHERE lower(name) LIKE '%abc12%'
+    UNION SELECT id FROM search_bench.users WHERE lower(email) LIKE '%abc12%'
+    UNION SELECT u2.id FROM search_bench.users u2 JOIN search_bench.departments d ON d.id = u2.department_id
+          WHERE lower(d.name) LIKE '%abc12%'
+    UNION SELECT id FROM search_bench.users WHERE id = -1)
+ORDER BY u.id
+LIMIT 20;
+
+-- 4. After, with the V5 indexes: unselective term (matches every row) - trigrams cannot help here
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT u.* FROM search_bench.users u WHERE u.id IN (
+    SELECT id FROM search_bench.users WHERE lower(name) LIKE '%user%'
+    UNION SELECT id FROM search_bench.users WHERE lower(email) LIKE '%user%'
+    UNION SELECT u2.id FROM search_bench.users u2 JOIN search_bench.departments d ON d.id = u2.department_id
+          WHERE lower(d.name) LIKE '%user%'
+    UNION SELECT id FROM search_bench.users WHERE id = -1)
+ORDER BY u.id
+LIMIT 20;
+
+DROP SCHEMA search_bench CASCADE;
@@ -0,0 +1,13 @@
+#!/bin/bash
+
+# Open-loop load against a running instance; options are passed through, e.g.
+#   ./run-loadgen.sh --rate=300 --duration=2m --label=near-cache-on
+# The login password comes from --password or LOADGEN_PASSWORD (in .env).
+
+# Load environment variables from .env file
+if [ -f .env ]; then
+    export $(cat .env | grep -v '^#' | xargs)
+fi
+
+echo "Starting load generator..."
+./mvnw -q -Ploadgen compile exec:java -Dexec.args="$*"
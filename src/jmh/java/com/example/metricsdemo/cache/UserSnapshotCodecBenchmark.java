@@ -0,0 +1,86 @@
+package com.example.metricsdemo.cache;
+
+import com.example.metricsdemo.config.RedisConfig;
+import com.example.metricsdemo.model.Department;
+import com.example.metricsdemo.model.Role;
+import com.example.metricsdemo.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of the app.cache.codec values for one cached user, with serializers
+ * taken from RedisConfig. "typed-json" is the default-typed serializer of redisTemplate over
+ * the equivalent User entity graph, the form users were cached in before snapshots. The value
+ * size per key is printed once per codec at setup, since JMH only reports times.
+ *
+ * Run with ./mvnw -Pbenchmark compile exec:exec -Djmh.args=UserSnapshotCodecBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserSnapshotCodecBenchmark {
+
+    @Param({"binary", "json", "typed-json"})
+    public String codec;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        // A typical user from the sample data, with two roles
+        UserSnapshot snapshot = new UserSnapshot(1042L, "tony.stark", "Tony Stark", "tony.stark@example.com",
+            3L, "Engineering", Set.of("ROLE_USER", "ROLE_ADMIN"), System.currentTimeMillis(), 12);
+        if ("typed-json".equals(codec)) {
+            serializer = RedisConfig.typedJsonSerializer();
+            value = toEntityGraph(snapshot);
+        } else {
+            serializer = (RedisSerializer<Object>) (RedisSerializer<?>) RedisConfig.userSnapshotSerializer(codec);
+            value = snapshot;
+        }
+        encoded = serializer.serialize(value);
+        System.out.printf("%n%s codec: %d bytes per cached user%n", codec, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return serializer.deserialize(encoded);
+    }
+
+    private static User toEntityGraph(UserSnapshot snapshot) {
+        Department department = new Department(snapshot.getDepartmentName(), "Software development and technical teams");
+        department.setId(snapshot.getDepartmentId());
+        User user = new User(snapshot.getName(), snapshot.getEmail(), department);
+        user.setId(snapshot.getId());
+        long roleId = 1;
+        for (String roleName : snapshot.getRoles()) {
+            Role role = new Role(roleName, roleName);
+            role.setId(roleId++);
+            user.addRole(role);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.metricsdemo.benchmark;
+
+import com.example.metricsdemo.model.UserCredentials;
+import com.example.metricsdemo.repository.UserCredentialsRepository;
+import com.example.metricsdemo.security.CustomUserDetailsService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark for the authentication lookup: SQL statements and time per login, for the
+ * entity path (findByUsername, then walking user -> userRoles -> role for the authorities)
+ * against the single-query projection CustomUserDetailsService now uses.
+ *
+ * Built only with the loadgen Maven profile. Run with --spring.profiles.active=auth-benchmark;
+ * results are logged once at startup.
+ */
+@Component
+@Profile("auth-benchmark")
+public class AuthQueryBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthQueryBenchmark.class);
+
+    @Autowired
+    private UserCredentialsRepository userCredentialsRepository;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${app.auth-benchmark.usernames:admin,testuser}")
+    private List<String> usernames;
+
+    @Value("${app.auth-benchmark.iterations:1000}")
+    private int iterations;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            logger.warn("Hibernate statistics are off - statement counts need hibernate.generate_statistics=true");
+        }
+
+        for (String username : usernames) {
+            // Warm up both paths (JIT, connection pool, query plan cache)
+            for (int i = 0; i < Math.min(iterations, 200); i++) {
+                loadViaEntities(username);
+                userDetailsService.loadUserByUsername(username);
+            }
+
+            Result entities = measure(statistics, () -> loadViaEntities(username));
+            Result projection = measure(statistics, () -> userDetailsService.loadUserByUsername(username));
+
+            logger.info("Auth lookup for '{}' over {} iterations:", username, iterations);
+            logger.info("  entity graph : {}", entities);
+            logger.info("  projection   : {}", projection);
+        }
+    }
+
+    // The lookup as it was: credentials entity, then the authorities walked through the associations
+    private int loadViaEntities(String username) {
+        UserCredentials credentials = userCredentialsRepository.findByUsername(username).orElseThrow();
+        return (int) credentials.getUser().getUserRoles().stream()
+            .map(userRole -> userRole.getRole().getName())
+            .count();
+    }
+
+    private Result measure(Statistics statistics, Runnable lookup) {
+        long statementsBefore = statistics.getPrepareStatementCount();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            lookup.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long statements = statistics.getPrepareStatementCount() - statementsBefore;
+        return new Result((double) statements / iterations,
+            TimeUnit.NANOSECONDS.toMicros(elapsed) / (double) iterations);
+    }
+
+    private record Result(double statementsPerLogin, double microsPerLogin) {
+        @Override
+        public String toString() {
+            return String.format("%.1f statements/login, %.0f us/login", statementsPerLogin, microsPerLogin);
+        }
+    }
+}
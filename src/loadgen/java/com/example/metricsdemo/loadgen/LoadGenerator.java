@@ -0,0 +1,395 @@
+package com.example.metricsdemo.loadgen;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the user API, for comparing cache and search changes run to run
+ * against a local instance (H2 and the embedded-search profile, or the docker-compose services).
+ *
+ * Requests go out on a fixed schedule - constant or Poisson arrivals at --rate - whether or not
+ * earlier ones have returned, so a slow server gets more concurrent requests, as it would from
+ * real users. Latency is measured from each request's scheduled start: if the generator falls
+ * behind (at --max-in-flight, or a GC pause), the delay counts against the server instead of
+ * silently thinning the load (coordinated omission). See OperationStats.
+ *
+ * Each run writes to --output-dir:
+ * - {label}-{operation}.hgrm and {label}-all.hgrm: response time percentile distributions
+ *   (milliseconds), plottable with the HdrHistogram plotter - load two runs to compare them
+ * - {label}-{operation}-service.hgrm: the same for service time, i.e. without the correction
+ * - {label}.hlog: per-interval histograms tagged by operation, for HistogramLogAnalyzer
+ * - runs.csv: one row per operation per run, appended
+ *
+ * The id sequence, operation mix and search terms come from --seed, so runs with the same
+ * settings replay the same workload. Run with the loadgen Maven profile or run-loadgen.sh.
+ */
+public class LoadGenerator {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final int PAGE_SIZE = 20;
+    private static final int SNAPSHOT_PAGE_SIZE = 500;
+
+    private final LoadGeneratorConfig config;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "loadgen-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // User id -> PUT body with the name and email the user had at startup, so updates write the
+    // values back and leave the data (search terms, cache contents) as they were for the next run
+    private final Map<Long, String> updateBodies = new HashMap<>();
+    private volatile String accessToken;
+    private HistogramLogWriter intervalLog;
+    private long intervalLogBaseMillis;
+
+    public LoadGenerator(LoadGeneratorConfig config) {
+        this.config = config;
+        // The app serves plain HTTP/1.1 - skip the h2c upgrade attempt on every new connection
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(config.getTimeout())
+            .build();
+        this.inFlight = new Semaphore(config.getMaxInFlight());
+
+        this.operations = config.getMix().keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.getMix().get(operations[i]);
+            cumulativeWeights[i] = total;
+            stats.put(operations[i], new OperationStats(operations[i]));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(LoadGeneratorConfig.parse(args)).run();
+    }
+
+    public void run() throws Exception {
+        login();
+        long maxId = config.getMaxId() > 0 ? config.getMaxId() : discoverMaxId();
+        ZipfianGenerator ids = new ZipfianGenerator(maxId, config.getZipfExponent());
+        // Early pages are hot too, like a UI that mostly shows the first few
+        ZipfianGenerator pages = new ZipfianGenerator(Math.max(1, maxId / PAGE_SIZE), config.getZipfExponent());
+        SearchTermGenerator searchTerms = new SearchTermGenerator(config.getTerms(), config.getTypoRate());
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        if (config.getMix().containsKey(Operation.UPDATE)) {
+            readUpdateBodies(maxId);
+        }
+
+        System.out.println("Load generator: " + config.describe() + ", ids 1-" + maxId);
+        openIntervalLog();
+
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + config.getWarmup().toNanos();
+        long endNanos = measureFromNanos + config.getDuration().toNanos();
+        long meanGapNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.getRate());
+        long maxLagNanos = 0;
+
+        if (!config.getWarmup().isZero()) {
+            System.out.printf("Warming up for %ds (not recorded)%n", config.getWarmup().toSeconds());
+        }
+        long reportMillis = config.getReportInterval().toMillis();
+        ScheduledFuture<?> reporter = scheduler.scheduleAtFixedRate(
+            this::reportIntervals, reportMillis, reportMillis, TimeUnit.MILLISECONDS);
+
+        long intendedStart = startNanos;
+        while (intendedStart < endNanos) {
+            long remaining;
+            while ((remaining = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+
+            // Blocks at --max-in-flight. Every request queued behind it keeps its scheduled start,
+            // so the wait shows up in its response time rather than disappearing from the results.
+            inFlight.acquire();
+
+            boolean measured = intendedStart >= measureFromNanos;
+            if (measured) {
+                maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - intendedStart);
+            }
+            Operation operation = nextOperation(random);
+            HttpRequest request = buildRequest(operation, random, ids, pages, searchTerms);
+            send(operation, request, intendedStart, measured);
+
+            intendedStart += config.getArrival() == LoadGeneratorConfig.Arrival.CONSTANT
+                ? meanGapNanos
+                : (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+        }
+
+        // Let the last requests finish or time out, so the tail is not cut off
+        if (!inFlight.tryAcquire(config.getMaxInFlight(), config.getTimeout().toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            System.err.println("Some requests were still outstanding at the end of the run - their latencies are missing");
+        }
+        reporter.cancel(false);
+        scheduler.shutdownNow();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        reportIntervals();
+        intervalLog.close();
+
+        writeResults(maxLagNanos);
+    }
+
+    private void send(Operation operation, HttpRequest request, long intendedStart, boolean measured) {
+        OperationStats operationStats = stats.get(operation);
+        long sent = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .whenComplete((response, failure) -> {
+                long completed = System.nanoTime();
+                inFlight.release();
+                if (!measured) {
+                    return;
+                }
+                String error = null;
+                if (failure != null) {
+                    Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                    error = cause.getClass().getSimpleName();
+                } else if (response.statusCode() >= 300) {
+                    error = "HTTP " + response.statusCode();
+                }
+                operationStats.record(intendedStart, sent, completed, error);
+            });
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    private HttpRequest buildRequest(Operation operation, SplittableRandom random, ZipfianGenerator ids,
+                                     ZipfianGenerator pages, SearchTermGenerator searchTerms) {
+        return switch (operation) {
+            case GET -> authorized("/api/users/" + ids.next(random)).GET().build();
+            // Public endpoint - sent without a token, as the UI does
+            case SEARCH -> request("/api/users/search?size=" + PAGE_SIZE + "&query="
+                    + URLEncoder.encode(searchTerms.next(random), StandardCharsets.UTF_8))
+                .GET().build();
+            case PAGED -> authorized("/api/users/paged?size=" + PAGE_SIZE + "&page=" + (pages.next(random) - 1))
+                .GET().build();
+            case UPDATE -> {
+                long id = ids.next(random);
+                // An id with no user (deleted) gets an empty update - a 404 either way
+                String body = updateBodies.getOrDefault(id, "{}");
+                yield authorized("/api/users/" + id)
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            }
+        };
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(config.getBaseUrl() + path)).timeout(config.getTimeout());
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return request(path).header("Authorization", "Bearer " + accessToken);
+    }
+
+    private void login() throws IOException, InterruptedException {
+        String body = objectMapper.writeValueAsString(Map.of("username", config.getUsername(), "password", config.getPassword()));
+        HttpResponse<String> response = httpClient.send(
+            request("/api/auth/token")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login as " + config.getUsername() + " failed with HTTP " + response.statusCode());
+        }
+
+        JsonNode token = objectMapper.readTree(response.body());
+        accessToken = token.get("accessToken").asText();
+        // Log in again well before the token expires, so long runs do not turn into 401s
+        long refreshSeconds = Math.max(1, token.get("expiresIn").asLong() * 4 / 5);
+        scheduler.schedule(this::refreshToken, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    private void refreshToken() {
+        try {
+            login();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Token refresh failed, retrying in 5s: " + e.getMessage());
+            scheduler.schedule(this::refreshToken, 5, TimeUnit.SECONDS);
+        }
+    }
+
+    // Highest user id, read from the last row of the id-sorted listing
+    private long discoverMaxId() throws IOException, InterruptedException {
+        long total = getJson("/api/users/paged?page=0&size=1").get("totalElements").asLong();
+        if (total == 0) {
+            throw new IllegalStateException("No users to read - start the application with its sample data, or import some");
+        }
+        return getJson("/api/users/paged?size=1&page=" + (total - 1)).get("content").get(0).get("id").asLong();
+    }
+
+    // Keyset walk over the users up to maxId - one request per SNAPSHOT_PAGE_SIZE users
+    private void readUpdateBodies(long maxId) throws IOException, InterruptedException {
+        String cursor = "";
+        while (cursor != null) {
+            JsonNode page = getJson("/api/users/paged?size=" + SNAPSHOT_PAGE_SIZE + "&cursor="
+                + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            for (JsonNode user : page.get("content")) {
+                long id = user.get("id").asLong();
+                if (id > maxId) {
+                    return;
+                }
+                Map<String, String> body = new HashMap<>();
+                body.put("name", user.get("name").asText());
+                body.put("email", user.get("email").asText());
+                updateBodies.put(id, objectMapper.writeValueAsString(body));
+            }
+            JsonNode next = page.get("nextCursor");
+            cursor = next == null || next.isNull() ? null : next.asText();
+        }
+    }
+
+    private JsonNode getJson(String path) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(authorized(path).GET().build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " failed with HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private void openIntervalLog() throws IOException {
+        Files.createDirectories(config.getOutputDir());
+        intervalLogBaseMillis = System.currentTimeMillis();
+        intervalLog = new HistogramLogWriter(config.getOutputDir().resolve(config.getLabel() + ".hlog").toFile());
+        intervalLog.outputComment("Load generator run " + config.getLabel() + ": " + config.describe());
+        intervalLog.outputComment("Response times from intended start, in microseconds; tags are operations");
+        intervalLog.outputLogFormatVersion();
+        intervalLog.outputStartTime(intervalLogBaseMillis);
+        intervalLog.setBaseTime(intervalLogBaseMillis);
+        intervalLog.outputLegend();
+    }
+
+    // Reporter thread, and once more from run() after it has stopped
+    private void reportIntervals() {
+        StringBuilder line = new StringBuilder();
+        for (OperationStats operationStats : stats.values()) {
+            Histogram interval = operationStats.sampleInterval();
+            if (interval.getTotalCount() == 0) {
+                continue;
+            }
+            interval.setTag(operationStats.getOperation().label());
+            intervalLog.outputIntervalHistogram(
+                (interval.getStartTimeStamp() - intervalLogBaseMillis) / 1000.0,
+                (interval.getEndTimeStamp() - intervalLogBaseMillis) / 1000.0,
+                interval, MICROS_PER_MILLI);
+
+            double seconds = Math.max(1, interval.getEndTimeStamp() - interval.getStartTimeStamp()) / 1000.0;
+            line.append(String.format("  %s %.0f/s p50 %.1fms p99 %.1fms max %.1fms", operationStats.getOperation().label(),
+                interval.getTotalCount() / seconds,
+                interval.getValueAtPercentile(50) / MICROS_PER_MILLI,
+                interval.getValueAtPercentile(99) / MICROS_PER_MILLI,
+                interval.getMaxValue() / MICROS_PER_MILLI));
+        }
+        if (!line.isEmpty()) {
+            System.out.println(Instant.now() + line.toString());
+        }
+    }
+
+    private void writeResults(long maxLagNanos) throws IOException {
+        double seconds = config.getDuration().toMillis() / 1000.0;
+        Histogram all = new Histogram(OperationStats.HIGHEST_TRACKABLE_MICROS, OperationStats.SIGNIFICANT_DIGITS);
+
+        System.out.println();
+        System.out.println("Response time is from the scheduled start (coordinated omission corrected), service time from the actual send. Milliseconds.");
+        System.out.printf("%-8s %9s %8s %7s %8s %8s %8s %8s %9s | %12s %14s%n",
+            "op", "count", "req/s", "errors", "p50", "p90", "p99", "p99.9", "max", "service p99", "service p99.9");
+        for (OperationStats operationStats : stats.values()) {
+            Histogram responseTime = operationStats.getResponseTime();
+            Histogram serviceTime = operationStats.getServiceTime();
+            all.add(responseTime);
+            System.out.printf("%-8s %9d %8.1f %7d %8.2f %8.2f %8.2f %8.2f %9.2f | %12.2f %14.2f%n",
+                operationStats.getOperation().label(), responseTime.getTotalCount(), responseTime.getTotalCount() / seconds,
+                operationStats.getErrorCount(),
+                millis(responseTime, 50), millis(responseTime, 90), millis(responseTime, 99), millis(responseTime, 99.9),
+                responseTime.getMaxValue() / MICROS_PER_MILLI,
+                millis(serviceTime, 99), millis(serviceTime, 99.9));
+            if (operationStats.getErrorCount() > 0) {
+                System.out.println("         errors: " + operationStats.getErrors());
+            }
+
+            writeDistribution(operationStats.getOperation().label(), responseTime);
+            writeDistribution(operationStats.getOperation().label() + "-service", serviceTime);
+            appendRun(operationStats.getOperation().label(), responseTime, serviceTime, operationStats.getErrorCount(), seconds);
+        }
+        writeDistribution("all", all);
+
+        System.out.printf("%nTarget %.0f req/s, achieved %.1f req/s%n", config.getRate(), all.getTotalCount() / seconds);
+        if (maxLagNanos > TimeUnit.MILLISECONDS.toNanos(10)) {
+            System.out.printf("The generator ran up to %.1fms behind schedule (--max-in-flight or a local pause); "
+                + "response times include that delay%n", maxLagNanos / 1e6);
+        }
+        System.out.println("Histograms written to " + config.getOutputDir().toAbsolutePath());
+    }
+
+    private void writeDistribution(String name, Histogram histogram) throws IOException {
+        Path file = config.getOutputDir().resolve(config.getLabel() + "-" + name + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private void appendRun(String operation, Histogram responseTime, Histogram serviceTime, long errors, double seconds)
+            throws IOException {
+        Path file = config.getOutputDir().resolve("runs.csv");
+        StringBuilder row = new StringBuilder();
+        if (!Files.exists(file)) {
+            row.append("label,finished_at,operation,target_rate,count,throughput,errors,"
+                + "p50_ms,p90_ms,p99_ms,p999_ms,max_ms,service_p99_ms,service_p999_ms\n");
+        }
+        row.append(String.format("%s,%s,%s,%.0f,%d,%.1f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+            config.getLabel(), Instant.now(), operation, config.getRate(), responseTime.getTotalCount(),
+            responseTime.getTotalCount() / seconds, errors,
+            millis(responseTime, 50), millis(responseTime, 90), millis(responseTime, 99), millis(responseTime, 99.9),
+            responseTime.getMaxValue() / MICROS_PER_MILLI, millis(serviceTime, 99), millis(serviceTime, 99.9)));
+        Files.writeString(file, row, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.metricsdemo.loadgen;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Load generator settings, from --name=value arguments. Durations take the same forms as the
+// application properties (500ms, 30s, 2m).
+public class LoadGeneratorConfig {
+
+    public enum Arrival {
+        // Evenly spaced requests
+        CONSTANT,
+        // Exponentially distributed gaps at the same mean rate - bursty, like independent clients
+        POISSON
+    }
+
+    // Names from the sample data, plus department names, so most searches have hits
+    private static final List<String> DEFAULT_TERMS = List.of(
+        "john", "jane", "smith", "alice", "brown", "charlie", "wilson", "tony stark", "bruce wayne",
+        "peter parker", "diana", "clark kent", "natasha", "steve rogers", "wanda", "scott lang",
+        "carol danvers", "engineering", "marketing", "security", "research", "operations");
+
+    private String baseUrl = "http://localhost:8080";
+    private double rate = 200;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Arrival arrival = Arrival.POISSON;
+    private Map<Operation, Integer> mix = parseMix("get=70,search=20,paged=5,update=5");
+    private double zipfExponent = 0.99;
+    private long maxId = 0;
+    private List<String> terms = DEFAULT_TERMS;
+    private double typoRate = 0.3;
+    private String username = "admin";
+    private String password = System.getenv("LOADGEN_PASSWORD");
+    private int maxInFlight = 1000;
+    private Duration timeout = Duration.ofSeconds(10);
+    private Duration reportInterval = Duration.ofSeconds(5);
+    private Path outputDir = Path.of("target", "loadgen");
+    private String label = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    private long seed = 42;
+
+    public static LoadGeneratorConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int split = arg.indexOf('=');
+            values.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+
+        LoadGeneratorConfig config = new LoadGeneratorConfig();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            switch (entry.getKey()) {
+                case "base-url" -> config.baseUrl = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                case "rate" -> config.rate = Double.parseDouble(value);
+                case "duration" -> config.duration = DurationStyle.detectAndParse(value);
+                case "warmup" -> config.warmup = DurationStyle.detectAndParse(value);
+                case "arrival" -> config.arrival = Arrival.valueOf(value.toUpperCase());
+                case "mix" -> config.mix = parseMix(value);
+                case "zipf-exponent" -> config.zipfExponent = Double.parseDouble(value);
+                case "max-id" -> config.maxId = Long.parseLong(value);
+                case "terms" -> config.terms = Arrays.stream(value.split(",")).map(String::trim).filter(t -> !t.isEmpty()).toList();
+                case "typo-rate" -> config.typoRate = Double.parseDouble(value);
+                case "username" -> config.username = value;
+                case "password" -> config.password = value;
+                case "max-in-flight" -> config.maxInFlight = Integer.parseInt(value);
+                case "timeout" -> config.timeout = DurationStyle.detectAndParse(value);
+                case "report-interval" -> config.reportInterval = DurationStyle.detectAndParse(value);
+                case "output-dir" -> config.outputDir = Path.of(value);
+                case "label" -> config.label = value;
+                case "seed" -> config.seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option --" + entry.getKey());
+            }
+        }
+        config.validate();
+        return config;
+    }
+
+    // get=70,search=20,paged=5,update=5 - relative weights, they need not add up to 100
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : value.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in --mix, got: " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: " + part);
+            }
+            if (weight > 0) {
+                weights.put(Operation.parse(pair[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("--mix needs at least one operation with a positive weight");
+        }
+        return weights;
+    }
+
+    private void validate() {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive");
+        }
+        if (duration.isNegative() || duration.isZero() || warmup.isNegative()) {
+            throw new IllegalArgumentException("--duration must be positive and --warmup not negative");
+        }
+        if (zipfExponent <= 0) {
+            throw new IllegalArgumentException("--zipf-exponent must be positive");
+        }
+        if (typoRate < 0 || typoRate > 1) {
+            throw new IllegalArgumentException("--typo-rate must be between 0 and 1");
+        }
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("--terms cannot be empty");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("--max-in-flight must be at least 1");
+        }
+        if (password == null || password.isBlank()) {
+            throw new IllegalArgumentException("Reads and updates need a login - pass --password or set LOADGEN_PASSWORD");
+        }
+    }
+
+    public String describe() {
+        return String.format("%s at %.0f req/s (%s arrivals) for %ds after %ds warmup, mix %s, zipf s=%.2f, typo rate %.2f, seed %d",
+            baseUrl, rate, arrival.name().toLowerCase(), duration.toSeconds(), warmup.toSeconds(),
+            mix, zipfExponent, typoRate, seed);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Arrival getArrival() {
+        return arrival;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    public double getTypoRate() {
+        return typoRate;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public Duration getReportInterval() {
+        return reportInterval;
+    }
+
+    public Path getOutputDir() {
+        return outputDir;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
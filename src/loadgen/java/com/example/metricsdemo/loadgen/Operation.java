@@ -0,0 +1,38 @@
+package com.example.metricsdemo.loadgen;
+
+import java.util.Locale;
+
+// The requests the load generator mixes. Names are what --mix and the reports use.
+public enum Operation {
+
+    // GET /api/users/{id} - the cached read path
+    GET(false),
+    // GET /api/users/search?query= - fuzzy search, terms with typos
+    SEARCH(false),
+    // GET /api/users/paged - first page, PostgreSQL sorted by id
+    PAGED(false),
+    // PUT /api/users/{id} with the user's own name and email - evicts the cached snapshot and queues a reindex
+    UPDATE(true);
+
+    private final boolean write;
+
+    Operation(boolean write) {
+        this.write = write;
+    }
+
+    public boolean isWrite() {
+        return write;
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static Operation parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown operation '" + value + "' - expected one of get, search, paged, update");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.metricsdemo.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and failures for one operation, in microseconds. Each request is recorded twice:
+ * - response time: from when the schedule said the request should start to when the response
+ *   arrived. This is what a user would see, and it includes any time the request waited because
+ *   the generator was stalled behind slow responses - the coordinated omission correction.
+ * - service time: from when the request was actually sent. This is what a closed-loop tool
+ *   reports; the gap between the two shows how much queueing a naive benchmark would hide.
+ *
+ * Completions record into Recorders from any thread; the reporter thread takes interval
+ * histograms and accumulates the run totals.
+ */
+public class OperationStats {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Operation operation;
+    private final Recorder responseTimeRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Recorder serviceTimeRecorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram responseTime = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram serviceTime = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    // HTTP status or exception name -> count
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public OperationStats(Operation operation) {
+        this.operation = operation;
+    }
+
+    // error is null for a 2xx response
+    public void record(long intendedStartNanos, long sentNanos, long completedNanos, String error) {
+        responseTimeRecorder.recordValue(toMicros(completedNanos - intendedStartNanos));
+        serviceTimeRecorder.recordValue(toMicros(completedNanos - sentNanos));
+        if (error != null) {
+            errors.computeIfAbsent(error, key -> new LongAdder()).increment();
+        }
+    }
+
+    // Response times recorded since the last call, also added to the run totals. Reporter thread only.
+    public Histogram sampleInterval() {
+        Histogram interval = responseTimeRecorder.getIntervalHistogram();
+        responseTime.add(interval);
+        serviceTime.add(serviceTimeRecorder.getIntervalHistogram());
+        return interval;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Histogram getResponseTime() {
+        return responseTime;
+    }
+
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getErrorCount() {
+        return errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public Map<String, Long> getErrors() {
+        Map<String, Long> counts = new TreeMap<>();
+        errors.forEach((error, count) -> counts.put(error, count.sum()));
+        return counts;
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.metricsdemo.loadgen;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Search queries for the fuzzy search endpoint: a term from the list, and with probability
+// typoRate one edit to it - a substitution, deletion, insertion or swap of neighbouring letters.
+// One edit is within fuzziness AUTO for terms of three letters or more, so typos should still hit.
+public class SearchTermGenerator {
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+    private final List<String> terms;
+    private final double typoRate;
+
+    public SearchTermGenerator(List<String> terms, double typoRate) {
+        this.terms = List.copyOf(terms);
+        this.typoRate = typoRate;
+    }
+
+    public String next(SplittableRandom random) {
+        String term = terms.get(random.nextInt(terms.size()));
+        return random.nextDouble() < typoRate ? withTypo(term, random) : term;
+    }
+
+    static String withTypo(String term, SplittableRandom random) {
+        if (term.length() < 2) {
+            return term;
+        }
+        StringBuilder typo = new StringBuilder(term);
+        int at = random.nextInt(term.length());
+        char letter = LETTERS.charAt(random.nextInt(LETTERS.length()));
+        switch (random.nextInt(4)) {
+            case 0 -> typo.setCharAt(at, letter);
+            case 1 -> typo.deleteCharAt(at);
+            case 2 -> typo.insert(at, letter);
+            default -> {
+                int next = at == term.length() - 1 ? at - 1 : at + 1;
+                typo.setCharAt(at, term.charAt(next));
+                typo.setCharAt(next, term.charAt(at));
+            }
+        }
+        return typo.toString();
+    }
+}
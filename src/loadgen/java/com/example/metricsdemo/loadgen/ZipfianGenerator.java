@@ -0,0 +1,72 @@
+package com.example.metricsdemo.loadgen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf-distributed ranks in [1, n]: rank k is drawn with probability proportional to 1/k^s, so a
+ * few ids take most of the reads the way hot keys do in production. s=0.99 is the YCSB default;
+ * higher is more skewed (better cache hit ratio), lower tends to uniform.
+ *
+ * Rejection-inversion sampling (Hormann and Derflinger, 1996): constant time and memory per draw
+ * whatever n is, so the id space can be the whole table without precomputing a CDF.
+ */
+public class ZipfianGenerator {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfianGenerator(long n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipfian range must hold at least one element");
+        }
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("Zipfian exponent must be positive");
+        }
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    public long next(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInverse(u);
+            long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+
+            // Accepted outright when close to x, otherwise only under the true density
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    // Integral of h(x) = x^-exponent, shifted so it stays finite at exponent 1
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(-1.0, x * (1.0 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, with a series near 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, with a series near 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.metricsdemo.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Compact, schema-versioned binary encoding of cached user snapshots.
+ *
+ * Layout (v3): version byte, user id, username, name, email, department id,
+ * department name, role count and role names, then the cache metadata
+ * (cached-at timestamp and load time). No class names or field names are
+ * written, so an entry is a fraction of the size of the polymorphic JSON form.
+ * v2 entries (no metadata) are still read; v1 (the full User entity graph) is not.
+ * Entries written with an unknown version fail to decode and are treated as a cache miss.
+ */
+public class BinaryUserSnapshotSerializer implements RedisSerializer<UserSnapshot> {
+
+    public static final byte SCHEMA_VERSION = 3;
+    private static final byte SCHEMA_VERSION_NO_METADATA = 2;
+
+    @Override
+    public byte[] serialize(UserSnapshot snapshot) throws SerializationException {
+        if (snapshot == null) {
+            return new byte[0];
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeByte(SCHEMA_VERSION);
+            writeNullableLong(out, snapshot.getId());
+            writeNullableString(out, snapshot.getUsername());
+            writeNullableString(out, snapshot.getName());
+            writeNullableString(out, snapshot.getEmail());
+            writeNullableLong(out, snapshot.getDepartmentId());
+            writeNullableString(out, snapshot.getDepartmentName());
+
+            out.writeInt(snapshot.getRoles().size());
+            for (String role : snapshot.getRoles()) {
+                out.writeUTF(role);
+            }
+
+            out.writeLong(snapshot.getCachedAt());
+            out.writeLong(snapshot.getLoadMillis());
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Could not encode user snapshot " + snapshot.getId(), e);
+        }
+    }
+
+    @Override
+    public UserSnapshot deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+            byte version = in.readByte();
+            if (version != SCHEMA_VERSION && version != SCHEMA_VERSION_NO_METADATA) {
+                throw new SerializationException("Unsupported cached user schema version: " + version);
+            }
+
+            Long id = readNullableLong(in);
+            String username = readNullableString(in);
+            String name = readNullableString(in);
+            String email = readNullableString(in);
+            Long departmentId = readNullableLong(in);
+            String departmentName = readNullableString(in);
+
+            int roleCount = in.readInt();
+            Set<String> roles = new LinkedHashSet<>(roleCount);
+            for (int i = 0; i < roleCount; i++) {
+                roles.add(in.readUTF());
+            }
+
+            // v2 entries carry no metadata - they are never refreshed early and simply expire
+            long cachedAt = 0L;
+            long loadMillis = 0L;
+            if (version == SCHEMA_VERSION) {
+                cachedAt = in.readLong();
+                loadMillis = in.readLong();
+            }
+
+            return new UserSnapshot(id, username, name, email, departmentId, departmentName, roles,
+                cachedAt, loadMillis);
+        } catch (IOException e) {
+            throw new SerializationException("Could not decode cached user snapshot", e);
+        }
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.metricsdemo.cache;
+
+import com.example.metricsdemo.document.UserDocument;
+import com.example.metricsdemo.dto.UserDTO;
+import com.example.metricsdemo.model.User;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, flattened read model of a user - exactly what {@link UserDTO} needs.
+ * This is what we cache instead of the JPA entity graph, so a cache hit can go
+ * straight to the response without touching lazy associations.
+ */
+public final class UserSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final String name;
+    private final String email;
+    private final Long departmentId;
+    private final String departmentName;
+    private final Set<String> roles;
+    // Cache entry metadata used for probabilistic early refresh
+    private final long cachedAt;
+    private final long loadMillis;
+
+    @JsonCreator
+    public UserSnapshot(@JsonProperty("id") Long id,
+                        @JsonProperty("username") String username,
+                        @JsonProperty("name") String name,
+                        @JsonProperty("email") String email,
+                        @JsonProperty("departmentId") Long departmentId,
+                        @JsonProperty("departmentName") String departmentName,
+                        @JsonProperty("roles") Set<String> roles,
+                        @JsonProperty("cachedAt") long cachedAt,
+                        @JsonProperty("loadMillis") long loadMillis) {
+        this.id = id;
+        this.username = username;
+        this.name = name;
+        this.email = email;
+        this.departmentId = departmentId;
+        this.departmentName = departmentName;
+        this.roles = roles != null
+            ? Collections.unmodifiableSet(new LinkedHashSet<>(roles))
+            : Collections.emptySet();
+        this.cachedAt = cachedAt;
+        this.loadMillis = loadMillis;
+    }
+
+    // Must be called while the entity's associations are still loadable (inside a transaction
+    // or on an entity fetched with its credentials, department and roles)
+    public static UserSnapshot from(User user) {
+        Set<String> roleNames = user.getUserRoles().stream()
+            .map(ur -> ur.getRole().getName())
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        String username = user.getCredentials() != null ? user.getCredentials().getUsername() : null;
+
+        return new UserSnapshot(
+            user.getId(),
+            username,
+            user.getName(),
+            user.getEmail(),
+            user.getDepartment() != null ? user.getDepartment().getId() : null,
+            user.getDepartment() != null ? user.getDepartment().getName() : null,
+            roleNames,
+            System.currentTimeMillis(),
+            0L
+        );
+    }
+
+    // Builds the read model from an enriched search document (_source), no database involved
+    public static UserSnapshot from(UserDocument document) {
+        return new UserSnapshot(
+            document.getId(),
+            document.getUsername(),
+            document.getName(),
+            document.getEmail(),
+            document.getDepartmentId(),
+            document.getDepartmentName(),
+            document.getRoles(),
+            0L,
+            0L
+        );
+    }
+
+    // Records how long the database load behind this snapshot took
+    public UserSnapshot withLoadMillis(long loadMillis) {
+        return new UserSnapshot(id, username, name, email, departmentId, departmentName, roles, cachedAt, loadMillis);
+    }
+
+    public UserDTO toDTO() {
+        return new UserDTO(id, username, name, email, departmentId, departmentName, new LinkedHashSet<>(roles));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Long getDepartmentId() {
+        return departmentId;
+    }
+
+    public String getDepartmentName() {
+        return departmentName;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public long getCachedAt() {
+        return cachedAt;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "UserSnapshot{" +
+                "id=" + id +
+                ", username='" + username + '\'' +
+                ", name='" + name + '\'' +
+                ", departmentName='" + departmentName + '\'' +
+                ", roles=" + roles +
+                '}';
+    }
+}
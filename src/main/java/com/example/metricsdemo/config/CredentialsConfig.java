@@ -0,0 +1,59 @@
+package com.example.metricsdemo.config;
+
+import com.example.metricsdemo.security.BoundedPasswordEncoder;
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+// Password hashing and token keys - needed by UserService and TokenService on both the
+// servlet and the reactive stack, so they live outside the stack-specific security configs
+@Configuration
+public class CredentialsConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialsConfig.class);
+
+    // BCrypt runs on the bounded password-hash pool; raising the strength rehashes each
+    // password on its owner's next successful login
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${app.security.bcrypt.strength:10}") int strength,
+            ThreadPoolTaskExecutor passwordHashExecutor,
+            MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(strength, passwordHashExecutor, meterRegistry);
+    }
+
+    // HS256 key shared by every node. Without a configured secret each process generates its own,
+    // so tokens only work on the node that issued them and not across restarts.
+    @Bean
+    public SecretKey tokenSigningKey(@Value("${app.security.token.secret:}") String secret) {
+        byte[] key;
+        if (secret.isBlank()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            logger.warn("app.security.token.secret is not set - using a random per-process token key");
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+            if (key.length < 32) {
+                throw new IllegalStateException("app.security.token.secret must be at least 32 bytes for HS256");
+            }
+        }
+        return new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    @Bean
+    public JwtEncoder jwtEncoder(SecretKey tokenSigningKey) {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(tokenSigningKey));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.metricsdemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    // With spring.threads.virtual.enabled (Java 21) the I/O pools below run their tasks on virtual
+    // threads. Pool sizes still cap concurrency - they are limits on Redis/Elasticsearch load, not
+    // on threads. The password-hash pool stays on platform threads: BCrypt is pure CPU.
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Spring 6.1 has no virtual-thread switch on ThreadPoolTaskExecutor, so hand it a virtual-thread
+    // factory instead. VirtualThreadTaskExecutor only works on Java 21, hence the version check.
+    private void useVirtualThreads(ThreadPoolTaskExecutor executor, String threadNamePrefix) {
+        if (virtualThreads && Runtime.version().feature() >= 21) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor(threadNamePrefix).getVirtualThreadFactory());
+        }
+    }
+
+    // Background cache refreshes (early refresh of hot users). Small and bounded:
+    // if it is saturated the refresh is skipped and the entry simply expires.
+    @Bean
+    public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("cache-refresh-");
+        useVirtualThreads(executor, "cache-refresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Runs reindex jobs - one at a time. A job is no longer active just before its thread
+    // is free, so the next job can be handed over while the previous one is still finishing.
+    @Bean
+    public ThreadPoolTaskExecutor reindexJobExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("reindex-job-");
+        useVirtualThreads(executor, "reindex-job-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Sends _bulk requests for a running reindex job; the job itself caps how many are in flight
+    @Bean
+    public ThreadPoolTaskExecutor reindexBulkExecutor(@Value("${app.search.reindex.max-in-flight:4}") int maxInFlight) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxInFlight);
+        executor.setMaxPoolSize(maxInFlight);
+        executor.setQueueCapacity(maxInFlight);
+        executor.setThreadNamePrefix("reindex-bulk-");
+        useVirtualThreads(executor, "reindex-bulk-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Elasticsearch search calls, so SearchCircuitBreaker can stop waiting after its latency budget.
+    // No queue: if every thread is stuck on a slow cluster, new searches fall back immediately.
+    @Bean
+    public ThreadPoolTaskExecutor searchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("search-");
+        useVirtualThreads(executor, "search-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Post-commit side effects of user writes (cache eviction, login/token invalidation), see
+    // PostCommitEffects. When it is saturated the request thread runs the effect itself, which
+    // slows writes down rather than dropping a cache update.
+    @Bean
+    public ThreadPoolTaskExecutor writeEffectsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("write-effects-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        useVirtualThreads(executor, "write-effects-");
+        executor.initialize();
+        return executor;
+    }
+
+    // BCrypt hashing and verification (logins, password changes, imports) - CPU-bound, so one
+    // thread per core by default. The queue absorbs short login bursts; beyond it work is
+    // rejected and the caller gets a 503 rather than piling up on request threads.
+    @Bean
+    public ThreadPoolTaskExecutor passwordHashExecutor(
+            @Value("${app.security.password-hash.threads:0}") int threads,
+            @Value("${app.security.password-hash.queue-capacity:200}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("password-hash-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Blocking JPA calls from the reactive read API (reactive profile). Sized to the connection
+    // pool, since more threads would only wait for a connection; beyond the queue, reads are
+    // rejected with a 503 instead of blocking event-loop threads.
+    @Bean(destroyMethod = "dispose")
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public Scheduler jdbcBridgeScheduler(
+            @Value("${app.reactive.jdbc-bridge.threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+            @Value("${app.reactive.jdbc-bridge.queue-capacity:1000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(threads, queueCapacity, "jdbc-bridge");
+    }
+}
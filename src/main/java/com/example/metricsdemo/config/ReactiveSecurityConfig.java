@@ -0,0 +1,83 @@
+package com.example.metricsdemo.config;
+
+import com.example.metricsdemo.security.TokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.SecretKey;
+
+// Security for the reactive profile. Bearer tokens only: HTTP Basic would need a blocking
+// credentials query and BCrypt per request, which is what this stack avoids. Tokens are issued
+// by the MVC nodes (POST /api/auth/token) and verified here with the shared signing key.
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableWebFluxSecurity
+public class ReactiveSecurityConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveSecurityConfig.class);
+
+    @Bean
+    public SecurityWebFilterChain reactiveFilterChain(ServerHttpSecurity http) {
+        return http
+            // Disable CSRF for stateless API
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .httpBasic(ServerHttpSecurity.HttpBasicSpec::disable)
+            .formLogin(ServerHttpSecurity.FormLoginSpec::disable)
+
+            // Same rules as the MVC stack for the endpoints served here
+            .authorizeExchange(exchange -> exchange
+                .pathMatchers(HttpMethod.GET, "/api/users/search").permitAll()
+                .pathMatchers("/actuator/loadsimulation", "/actuator/loadsimulation/**").hasRole("ADMIN")
+                .pathMatchers("/actuator/**").permitAll()
+                .anyExchange().authenticated()
+            )
+
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .jwt(jwt -> jwt.jwtAuthenticationConverter(
+                    new ReactiveJwtAuthenticationConverterAdapter(SecurityConfig.jwtAuthenticationConverter())))
+            )
+            .build();
+    }
+
+    // Signature, expiry and issuer as on the MVC stack; the revocation check reads the
+    // token version with a non-blocking GET and, like the MVC check, fails open if Redis is down
+    @Bean
+    public ReactiveJwtDecoder reactiveJwtDecoder(SecretKey tokenSigningKey,
+                                                 TokenService tokenService,
+                                                 ReactiveStringRedisTemplate reactiveStringRedisTemplate) {
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder.withSecretKey(tokenSigningKey)
+            .macAlgorithm(MacAlgorithm.HS256)
+            .build();
+        decoder.setJwtValidator(tokenService.standardValidator());
+
+        return token -> decoder.decode(token).flatMap(jwt -> reactiveStringRedisTemplate.opsForValue()
+            .get(TokenService.versionKey(jwt.getSubject()))
+            .map(Long::parseLong)
+            .onErrorResume(e -> {
+                logger.warn("Could not read token version for {}: {}", jwt.getSubject(), e.getMessage());
+                return Mono.empty();
+            })
+            .defaultIfEmpty(0L)
+            .flatMap(currentVersion -> {
+                OAuth2TokenValidatorResult result = tokenService.checkVersion(jwt, currentVersion);
+                return result.hasErrors()
+                    ? Mono.error(new JwtValidationException("Token was revoked", result.getErrors()))
+                    : Mono.just(jwt);
+            }));
+    }
+}
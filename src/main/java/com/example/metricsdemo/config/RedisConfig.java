@@ -1,39 +1,40 @@
 package com.example.metricsdemo.config;
 
+import com.example.metricsdemo.cache.BinaryUserSnapshotSerializer;
+import com.example.metricsdemo.cache.UserSnapshot;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(RedisConfig.class);
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
 
         // JSON serialization config
-        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper om = new ObjectMapper();
-        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        
-        // Configure type validator to allow our model classes
-        PolymorphicTypeValidator ptv = BasicPolymorphicTypeValidator.builder()
-                .allowIfSubType("com.example.metricsdemo.model")
-                .allowIfSubType("java.util")
-                .build();
-        
-        om.activateDefaultTyping(ptv, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
-        jackson2JsonRedisSerializer.setObjectMapper(om);
+        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = typedJsonSerializer();
 
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
 
@@ -48,4 +49,65 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisTemplate<String, UserSnapshot> userCacheRedisTemplate(
+            RedisConnectionFactory connectionFactory,
+            @Value("${app.cache.codec:binary}") String codec) {
+        RedisTemplate<String, UserSnapshot> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        logger.info("Using '{}' codec for cached users", codec);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(userSnapshotSerializer(codec));
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    // Non-blocking twin of userCacheRedisTemplate for the reactive read API - same keys, same
+    // codec, so entries written by either stack are readable by the other
+    @Bean
+    public ReactiveRedisTemplate<String, UserSnapshot> reactiveUserCacheRedisTemplate(
+            ReactiveRedisConnectionFactory connectionFactory,
+            @Value("${app.cache.codec:binary}") String codec) {
+        RedisSerializationContext<String, UserSnapshot> context = RedisSerializationContext
+                .<String, UserSnapshot>newSerializationContext(new StringRedisSerializer())
+                .value(userSnapshotSerializer(codec))
+                .build();
+        return new ReactiveRedisTemplate<>(connectionFactory, context);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        // Shared pub/sub container - used for cross-node cache invalidation messages
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    // Value codec for cached user snapshots: "binary" (compact, versioned) or "json".
+    // Snapshots are a single concrete type, so the JSON form needs no default typing.
+    public static RedisSerializer<UserSnapshot> userSnapshotSerializer(String codec) {
+        return switch (codec) {
+            case "binary" -> new BinaryUserSnapshotSerializer();
+            case "json" -> new Jackson2JsonRedisSerializer<>(UserSnapshot.class);
+            default -> throw new IllegalArgumentException("Unknown app.cache.codec: " + codec);
+        };
+    }
+
+    // Default-typed JSON for redisTemplate values, such as User entity graphs
+    public static Jackson2JsonRedisSerializer<Object> typedJsonSerializer() {
+        ObjectMapper om = new ObjectMapper();
+        om.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+
+        // Configure type validator to allow our model classes
+        PolymorphicTypeValidator ptv = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.example.metricsdemo.model")
+                .allowIfSubType("java.util")
+                .build();
+
+        om.activateDefaultTyping(ptv, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        return new Jackson2JsonRedisSerializer<>(om, Object.class);
+    }
+}
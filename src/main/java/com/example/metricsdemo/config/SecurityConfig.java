@@ -1,23 +1,48 @@
 package com.example.metricsdemo.config;
 
+import com.example.metricsdemo.exception.PasswordHashingBusyException;
+import com.example.metricsdemo.security.AuthenticationCache;
+import com.example.metricsdemo.security.BoundedPasswordEncoder;
+import com.example.metricsdemo.security.CachingAuthenticationProvider;
+import com.example.metricsdemo.security.CustomUserDetailsService;
+import com.example.metricsdemo.security.TokenService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
 
+import javax.crypto.SecretKey;
+
+// Servlet (MVC) stack only - the reactive profile uses ReactiveSecurityConfig.
+// Beans both stacks need (password encoder, token keys) live in CredentialsConfig.
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 @EnableMethodSecurity
 public class SecurityConfig {
     
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           @Value("${app.security.basic-auth.enabled:true}") boolean basicAuthEnabled) throws Exception {
         http
             // Disable CSRF for stateless API
             .csrf(csrf -> csrf.disable())
@@ -27,8 +52,10 @@ public class SecurityConfig {
                 // Public endpoints - no authentication required
                 .requestMatchers(HttpMethod.GET, "/api/users/search").permitAll()
                 .requestMatchers("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html").permitAll()
+                .requestMatchers("/actuator/loadsimulation", "/actuator/loadsimulation/**").hasRole("ADMIN")  // Changes latency at runtime
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/", "/index.html", "/login.html").permitAll()
+                .requestMatchers(HttpMethod.POST, "/api/auth/token").permitAll()  // Login - verifies the password itself
                 
                 // User endpoints - role-based access control
                 .requestMatchers(HttpMethod.GET, "/api/users/{id}").authenticated()  // USER or ADMIN can view
@@ -42,19 +69,77 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             )
             
-            // Enable HTTP Basic Authentication
-            .httpBasic(basic -> {})
+            // Bearer tokens from POST /api/auth/token: signature check, no database lookup
+            .oauth2ResourceServer(oauth2 -> oauth2
+                .jwt(jwt -> jwt.jwtAuthenticationConverter(jwtAuthenticationConverter()))
+            )
             
             // Stateless session management for REST API
             .sessionManagement(session -> 
                 session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)
             );
         
+        // HTTP Basic stays available unless token-only mode is configured;
+        // a saturated password-hash pool answers 503, not 401
+        if (basicAuthEnabled) {
+            http.httpBasic(basic -> basic.authenticationEntryPoint(authenticationEntryPoint()));
+        }
+        
         return http.build();
     }
     
+    // Used by the login endpoint - same cached DAO provider as HTTP Basic
+    @Bean
+    public AuthenticationManager authenticationManager(AuthenticationConfiguration configuration) throws Exception {
+        return configuration.getAuthenticationManager();
+    }
+    
+    @Bean
+    public JwtDecoder jwtDecoder(SecretKey tokenSigningKey, TokenService tokenService) {
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withSecretKey(tokenSigningKey)
+            .macAlgorithm(MacAlgorithm.HS256)
+            .build();
+        decoder.setJwtValidator(tokenService.tokenValidator());
+        return decoder;
+    }
+    
+    // Role names are stored with their ROLE_ prefix, so hasRole() works unchanged.
+    // Also used by ReactiveSecurityConfig.
+    static JwtAuthenticationConverter jwtAuthenticationConverter() {
+        JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        authoritiesConverter.setAuthoritiesClaimName(TokenService.ROLES_CLAIM);
+        authoritiesConverter.setAuthorityPrefix("");
+        
+        JwtAuthenticationConverter converter = new JwtAuthenticationConverter();
+        converter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+        return converter;
+    }
+    
+    // The DAO provider (credentials query + BCrypt) behind the verified-credential cache.
+    // Exposed as the only AuthenticationProvider bean, so Spring Security builds the
+    // AuthenticationManager from it instead of from the UserDetailsService directly.
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public AuthenticationProvider authenticationProvider(
+            CustomUserDetailsService userDetailsService,
+            BoundedPasswordEncoder passwordEncoder,
+            AuthenticationCache authenticationCache) {
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(userDetailsService);
+        daoProvider.setUserDetailsPasswordService(userDetailsService);
+        daoProvider.setPasswordEncoder(passwordEncoder);
+        return new CachingAuthenticationProvider(daoProvider, authenticationCache);
+    }
+    
+    private AuthenticationEntryPoint authenticationEntryPoint() {
+        BasicAuthenticationEntryPoint basicEntryPoint = new BasicAuthenticationEntryPoint();
+        basicEntryPoint.setRealmName("Realm");
+        return (request, response, authException) -> {
+            if (authException instanceof PasswordHashingBusyException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), authException.getMessage());
+            } else {
+                basicEntryPoint.commence(request, response, authException);
+            }
+        };
     }
 }
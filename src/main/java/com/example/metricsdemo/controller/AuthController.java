@@ -0,0 +1,51 @@
+package com.example.metricsdemo.controller;
+
+import com.example.metricsdemo.dto.LoginRequest;
+import com.example.metricsdemo.dto.TokenResponse;
+import com.example.metricsdemo.security.TokenService;
+import io.micrometer.core.annotation.Timed;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/auth")
+@Tag(name = "Authentication", description = "Exchange a username and password for a signed access token")
+public class AuthController {
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @PostMapping("/token")
+    @Timed(value = "auth_token_duration", description = "Time taken to verify a password and issue a token")
+    @Operation(summary = "Log in", description = "Verify the password once and return a short-lived Bearer token carrying the username and roles. Send it as 'Authorization: Bearer <token>'; a password or role change revokes it.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Token issued",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = TokenResponse.class))),
+        @ApiResponse(responseCode = "401", description = "Invalid username or password")
+    })
+    public ResponseEntity<TokenResponse> login(@Valid @RequestBody LoginRequest request) {
+        // Bad credentials throw an AuthenticationException - 401 via GlobalExceptionHandler
+        Authentication authentication = authenticationManager.authenticate(
+            UsernamePasswordAuthenticationToken.unauthenticated(request.getUsername(), request.getPassword()));
+        return ResponseEntity.ok(tokenService.issue(authentication));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.metricsdemo.controller;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.dto.PageCursor;
+import com.example.metricsdemo.dto.PagedResponse;
+import com.example.metricsdemo.dto.UserDTO;
+import com.example.metricsdemo.service.ReactiveUserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Read-only user API on WebFlux (reactive profile). Same paths, parameters and response bodies
+// as the matching UserController endpoints, so clients can be pointed at either stack.
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/api/users")
+public class ReactiveUserController {
+
+    @Autowired
+    private ReactiveUserService reactiveUserService;
+
+    private final Counter userRetrievalCounter;
+
+    public ReactiveUserController(MeterRegistry meterRegistry) {
+        this.userRetrievalCounter = Counter.builder("users_retrieved_total")
+                .description("Total number of user retrievals")
+                .register(meterRegistry);
+    }
+
+    @GetMapping("/paged")
+    public Mono<PagedResponse<UserDTO>> getAllUsersPaged(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "5") int size,
+            @RequestParam(required = false) String cursor) {
+        userRetrievalCounter.increment();
+
+        if (cursor != null) {
+            // Decode before subscribing, so a bad cursor is a 400 like on the MVC stack
+            long afterId = PageCursor.decode(cursor);
+            return reactiveUserService.getUsersAfter(afterId, size)
+                .map(slice -> new PagedResponse<>(toDTOs(slice.getContent()), size, cursor.isBlank(), nextCursor(slice)));
+        }
+
+        return reactiveUserService.getUsersPaged(page, size)
+            .map(userPage -> {
+                PagedResponse<UserDTO> response = toPagedResponse(userPage);
+                // Lets offset clients switch to keyset pagination from here on
+                response.setNextCursor(nextCursor(userPage));
+                return response;
+            });
+    }
+
+    @GetMapping("/search")
+    public Mono<PagedResponse<UserDTO>> searchUsers(
+            @RequestParam(required = false, defaultValue = "") String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "5") int size) {
+        userRetrievalCounter.increment();
+
+        // Empty query: PostgreSQL sorted by id. Otherwise fuzzy search with relevance scoring.
+        Mono<Page<UserSnapshot>> userPage = query == null || query.trim().isEmpty()
+            ? reactiveUserService.getUsersPaged(page, size)
+            : reactiveUserService.fuzzySearch(query, page, size);
+        return userPage.map(this::toPagedResponse);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<UserDTO> getUserById(@PathVariable Long id) {
+        userRetrievalCounter.increment();
+
+        // Cached snapshot goes straight to the response - no entity rehydration
+        return reactiveUserService.getUserById(id).map(UserSnapshot::toDTO);
+    }
+
+    private PagedResponse<UserDTO> toPagedResponse(Page<UserSnapshot> userPage) {
+        return new PagedResponse<>(
+            toDTOs(userPage.getContent()),
+            userPage.getNumber(),
+            userPage.getSize(),
+            userPage.getTotalElements(),
+            userPage.getTotalPages()
+        );
+    }
+
+    private static List<UserDTO> toDTOs(List<UserSnapshot> users) {
+        return users.stream().map(UserSnapshot::toDTO).toList();
+    }
+
+    private static String nextCursor(Slice<UserSnapshot> slice) {
+        List<UserSnapshot> content = slice.getContent();
+        if (!slice.hasNext() || content.isEmpty()) {
+            return null;
+        }
+        return PageCursor.encode(content.get(content.size() - 1).getId());
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.metricsdemo.controller;
 
+import com.example.metricsdemo.cache.UserSnapshot;
 import com.example.metricsdemo.dto.*;
 import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.service.UserImportService;
+import com.example.metricsdemo.service.UserReindexService;
 import com.example.metricsdemo.service.UserService;
+import com.example.metricsdemo.simulation.LoadSimulator;
 import io.micrometer.core.annotation.Counted;
 import io.micrometer.core.annotation.Timed;
 import io.micrometer.core.instrument.Counter;
@@ -14,31 +18,45 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/users")
 @Tag(name = "User Management", description = "APIs for managing users with Redis caching and Prometheus metrics")
 public class UserController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private UserService userService;
+    
+    @Autowired
+    private UserImportService userImportService;
+    
+    @Autowired
+    private LoadSimulator loadSimulator;
+    
+    // Only present with the Elasticsearch search engine
+    @Autowired(required = false)
+    private UserReindexService userReindexService;
 
     private final Counter userCreationCounter;
     private final Counter userRetrievalCounter;
     private final Counter userUpdateCounter;
     private final Counter userDeletionCounter;
-    private final Random random = new Random();
 
     public UserController(MeterRegistry meterRegistry) {
         this.userCreationCounter = Counter.builder("users_created_total")
@@ -66,32 +84,55 @@ public class UserController {
         @ApiResponse(responseCode = "200", description = "Successfully retrieved users",
                 content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class)))
     })
-    public List<UserDTO> getAllUsers(
+    public ResponseEntity<List<UserDTO>> getAllUsers(
             @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size) {
+            @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size,
+            @Parameter(description = "Keyset cursor from X-Next-Cursor (empty for the first page); replaces page") @RequestParam(required = false) String cursor) {
         userRetrievalCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("list");
         
-        return userService.getAllUsers(page, size).stream()
+        if (cursor != null) {
+            Slice<User> slice = userService.getUsersAfter(PageCursor.decode(cursor), size);
+            String nextCursor = nextCursor(slice);
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+            if (nextCursor != null) {
+                builder.header(NEXT_CURSOR_HEADER, nextCursor);
+            }
+            return builder.body(slice.getContent().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList()));
+        }
+        
+        return ResponseEntity.ok(userService.getAllUsers(page, size).stream()
             .map(this::convertToDTO)
-            .collect(Collectors.toList());
+            .collect(Collectors.toList()));
     }
 
     @GetMapping("/paged")
     @Timed(value = "get_users_paged_duration", description = "Time taken to get paginated users")
-    @Operation(summary = "Get users with pagination metadata", description = "Retrieve users with full pagination information")
+    @Operation(summary = "Get users with pagination metadata", description = "Retrieve users with full pagination information. Pass cursor (empty for the first page) to use keyset pagination: constant cost per page, no total count")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Successfully retrieved paginated users")
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved paginated users"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor")
     })
     public ResponseEntity<PagedResponse<UserDTO>> getAllUsersPaged(
             @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size) {
+            @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size,
+            @Parameter(description = "Keyset cursor from nextCursor (empty for the first page); replaces page") @RequestParam(required = false) String cursor) {
         userRetrievalCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("paged");
+        
+        if (cursor != null) {
+            Slice<User> slice = userService.getUsersAfter(PageCursor.decode(cursor), size);
+            List<UserDTO> userDTOs = slice.getContent().stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+            return ResponseEntity.ok(new PagedResponse<>(userDTOs, size, cursor.isBlank(), nextCursor(slice)));
+        }
         
         Page<User> userPage = userService.getAllUsersPaged(page, size);
         
@@ -106,6 +147,8 @@ public class UserController {
             userPage.getTotalElements(),
             userPage.getTotalPages()
         );
+        // Lets offset clients switch to keyset pagination from here on
+        response.setNextCursor(nextCursor(userPage));
         
         return ResponseEntity.ok(response);
     }
@@ -122,27 +165,23 @@ public class UserController {
             @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size) {
         userRetrievalCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("search");
         
-        Page<User> userPage;
+        Page<UserDTO> userPage;
         
         // If query is empty, use PostgreSQL (sorted by ID by default)
         // If query has value, use Elasticsearch (fuzzy search with relevance scoring)
         if (query == null || query.trim().isEmpty()) {
             // Use regular pagination sorted by ID
-            userPage = userService.getAllUsersPaged(page, size);
+            userPage = userService.getAllUsersPaged(page, size).map(this::convertToDTO);
         } else {
-            // Use Elasticsearch fuzzy search
-            userPage = userService.fuzzySearchUsersAsUsers(query, page, size);
+            // Use Elasticsearch fuzzy search, hydrated in bulk
+            userPage = userService.fuzzySearchUsersAsUsers(query, page, size).map(UserSnapshot::toDTO);
         }
         
-        List<UserDTO> userDTOs = userPage.getContent().stream()
-            .map(this::convertToDTO)
-            .collect(Collectors.toList());
-        
         PagedResponse<UserDTO> response = new PagedResponse<>(
-            userDTOs,
+            userPage.getContent(),
             userPage.getNumber(),
             userPage.getSize(),
             userPage.getTotalElements(),
@@ -164,11 +203,32 @@ public class UserController {
             @Parameter(description = "User ID") @PathVariable Long id) {
         userRetrievalCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("get");
         
-        User user = userService.getUserById(id);
-        return ResponseEntity.ok(convertToDTO(user));
+        // Cached snapshot goes straight to the response - no entity rehydration
+        UserSnapshot user = userService.getUserById(id);
+        return ResponseEntity.ok(user.toDTO());
+    }
+
+    @PostMapping("/batch")
+    @Timed(value = "get_users_batch_duration", description = "Time taken to get a batch of users by ID")
+    @Operation(summary = "Get users by IDs", description = "Retrieve up to 100 users in one call (one Redis MGET, one database query for misses). Unknown IDs are skipped.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Users found",
+                content = @Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class)))
+    })
+    public ResponseEntity<List<UserDTO>> getUsersByIds(
+            @Valid @RequestBody BatchUserRequest request) {
+        userRetrievalCounter.increment();
+        
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("batch");
+        
+        List<UserDTO> users = userService.getUsersByIds(request.getIds()).stream()
+            .map(UserSnapshot::toDTO)
+            .collect(Collectors.toList());
+        return ResponseEntity.ok(users);
     }
 
     @PostMapping
@@ -189,8 +249,8 @@ public class UserController {
             @Valid @RequestBody CreateUserRequest request) {
         userCreationCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("create");
         
         User user = userService.createUser(
             request.getUsername(),
@@ -204,6 +264,21 @@ public class UserController {
         return ResponseEntity.ok(convertToDTO(user));
     }
 
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Timed(value = "import_users_duration", description = "Time taken to import a batch of users")
+    @Operation(summary = "Bulk import users", description = "Stream users as NDJSON (one CreateUserRequest per line) or CSV (header: username,password,name,email,departmentId,roles; roles separated by ';'). Rows are written in chunks with JDBC batching; invalid rows and existing usernames/emails are reported, not fatal (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Import finished",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)))
+    public ResponseEntity<ImportResult> importUsers(HttpServletRequest request) throws IOException {
+        UserImportService.Format format = request.getContentType().startsWith("text/csv")
+            ? UserImportService.Format.CSV
+            : UserImportService.Format.NDJSON;
+        ImportResult result = userImportService.importUsers(request.getInputStream(), format);
+        userCreationCounter.increment(result.getImported());
+        return ResponseEntity.ok(result);
+    }
+
     @PutMapping("/{id}")
     @Timed(value = "update_user_duration", description = "Time taken to update a user")
     @Operation(summary = "Update user", description = "Update an existing user and refresh Redis cache. USER role can only update their own profile and cannot change roles.")
@@ -224,8 +299,8 @@ public class UserController {
             org.springframework.security.core.Authentication authentication) {
         userUpdateCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("update");
         
         // Check if user is ADMIN
         boolean isAdmin = authentication.getAuthorities().stream()
@@ -234,9 +309,8 @@ public class UserController {
         if (!isAdmin) {
             // USER role - check ownership
             String username = authentication.getName();
-            User targetUser = userService.getUserById(id);
-            String targetUsername = targetUser.getCredentials() != null ? 
-                targetUser.getCredentials().getUsername() : null;
+            UserSnapshot targetUser = userService.getUserById(id);
+            String targetUsername = targetUser.getUsername();
             
             if (!username.equals(targetUsername)) {
                 throw new org.springframework.security.access.AccessDeniedException(
@@ -288,8 +362,8 @@ public class UserController {
             @Parameter(description = "User ID") @PathVariable Long id) {
         userDeletionCounter.increment();
         
-        // Simulate some processing time
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("delete");
         
         userService.deleteUser(id);
         return ResponseEntity.ok().build();
@@ -307,24 +381,11 @@ public class UserController {
     @Operation(summary = "Slow endpoint", description = "Simulates a slow operation (2-5 seconds) for testing")
     @ApiResponse(responseCode = "200", description = "Slow operation completed")
     public ResponseEntity<String> slowEndpoint() {
-        // Simulate a slow operation
-        try {
-            Thread.sleep(2000 + random.nextInt(3000)); // 2-5 seconds
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        // Delay from the "slow" simulation profile (2-5 seconds by default), applied even with simulation off
+        loadSimulator.simulate("slow");
         return ResponseEntity.ok("Slow operation completed");
     }
 
-    private void simulateProcessingTime() {
-        try {
-            // Random processing time between 50-500ms
-            Thread.sleep(50 + random.nextInt(450));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     @GetMapping("/departments")
     @Operation(summary = "Get all departments", description = "Retrieve list of all departments")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved departments")
@@ -343,36 +404,69 @@ public class UserController {
             @Parameter(description = "Page number (0-indexed)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Number of users per page") @RequestParam(defaultValue = "5") int size) {
         userRetrievalCounter.increment();
-        simulateProcessingTime();
+        // Injected latency/faults - off unless app.simulation is enabled
+        loadSimulator.apply("fuzzy-search");
         
         return ResponseEntity.ok(userService.fuzzySearchUsers(query, page, size));
     }
     
     @PostMapping("/reindex")
     @PreAuthorize("hasRole('ADMIN')")
-    @Operation(summary = "Reindex all users", description = "Reindex all users in Elasticsearch for fuzzy search (ADMIN only)")
-    @ApiResponse(responseCode = "200", description = "Reindexing completed")
-    public ResponseEntity<String> reindexUsers() {
-        long count = userService.reindexAllUsers();
-        return ResponseEntity.ok("Reindexed " + count + " users in Elasticsearch");
+    @Operation(summary = "Reindex all users", description = "Start a background reindex: streams users in keyset chunks into a fresh index with parallel _bulk requests, then swaps the 'users' alias atomically (ADMIN only)")
+    @ApiResponse(responseCode = "202", description = "Reindex job started")
+    public ResponseEntity<ReindexJobStatus> reindexUsers() {
+        return ResponseEntity.accepted().body(reindexService().startReindex());
+    }
+    
+    @GetMapping("/reindex/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reindex job status", description = "Progress and throughput of a reindex job (ADMIN only)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Job status"),
+        @ApiResponse(responseCode = "404", description = "Reindex job not found")
+    })
+    public ResponseEntity<ReindexJobStatus> getReindexStatus(
+            @Parameter(description = "Reindex job ID") @PathVariable String jobId) {
+        return ResponseEntity.ok(reindexService().getStatus(jobId));
+    }
+    
+    @PostMapping("/reindex/{jobId}/resume")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Resume reindex job", description = "Resume a failed reindex job from its last committed user ID (ADMIN only)")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Reindex job resumed"),
+        @ApiResponse(responseCode = "404", description = "Reindex job not found")
+    })
+    public ResponseEntity<ReindexJobStatus> resumeReindex(
+            @Parameter(description = "Reindex job ID") @PathVariable String jobId) {
+        return ResponseEntity.accepted().body(reindexService().resumeReindex(jobId));
+    }
+    
+    @DeleteMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Purge user cache", description = "Remove all cached users from Redis and every node's near cache using incremental SCAN/UNLINK batches (ADMIN only)")
+    @ApiResponse(responseCode = "200", description = "Cache purged")
+    public ResponseEntity<CachePurgeResult> purgeUserCache() {
+        return ResponseEntity.ok(userService.purgeUserCache());
     }
     
+    private UserReindexService reindexService() {
+        if (userReindexService == null) {
+            throw new IllegalArgumentException("Reindex jobs need app.search.engine=elasticsearch; the embedded index is rebuilt at startup");
+        }
+        return userReindexService;
+    }
+    
+    private String nextCursor(Slice<User> slice) {
+        List<User> content = slice.getContent();
+        if (!slice.hasNext() || content.isEmpty()) {
+            return null;
+        }
+        return PageCursor.encode(content.get(content.size() - 1).getId());
+    }
+
     // Helper method to convert User entity to UserDTO
     private UserDTO convertToDTO(User user) {
-        Set<String> roleNames = user.getUserRoles().stream()
-            .map(ur -> ur.getRole().getName())
-            .collect(Collectors.toSet());
-        
-        String username = user.getCredentials() != null ? user.getCredentials().getUsername() : null;
-        
-        return new UserDTO(
-            user.getId(),
-            username,
-            user.getName(),
-            user.getEmail(),
-            user.getDepartment().getId(),
-            user.getDepartment().getName(),
-            roleNames
-        );
+        return UserSnapshot.from(user).toDTO();
     }
 }
@@ -5,6 +5,8 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 
+import java.util.Set;
+
 @Document(indexName = "users")
 public class UserDocument {
     
@@ -20,6 +22,16 @@ public class UserDocument {
     @Field(type = FieldType.Text)
     private String departmentName;
     
+    // Stored for serving results straight from _source - not searched
+    @Field(type = FieldType.Keyword)
+    private String username;
+    
+    @Field(type = FieldType.Long)
+    private Long departmentId;
+    
+    @Field(type = FieldType.Keyword)
+    private Set<String> roles;
+    
     // Constructors
     public UserDocument() {}
     
@@ -30,6 +42,14 @@ public class UserDocument {
         this.departmentName = departmentName;
     }
     
+    public UserDocument(Long id, String username, String name, String email,
+                        Long departmentId, String departmentName, Set<String> roles) {
+        this(id, name, email, departmentName);
+        this.username = username;
+        this.departmentId = departmentId;
+        this.roles = roles;
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -62,4 +82,28 @@ public class UserDocument {
     public void setDepartmentName(String departmentName) {
         this.departmentName = departmentName;
     }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public void setUsername(String username) {
+        this.username = username;
+    }
+    
+    public Long getDepartmentId() {
+        return departmentId;
+    }
+    
+    public void setDepartmentId(Long departmentId) {
+        this.departmentId = departmentId;
+    }
+    
+    public Set<String> getRoles() {
+        return roles;
+    }
+    
+    public void setRoles(Set<String> roles) {
+        this.roles = roles;
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.metricsdemo.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchUserRequest {
+    
+    @NotEmpty(message = "At least one user ID is required")
+    @Size(max = 100, message = "At most 100 user IDs can be requested at once")
+    private List<Long> ids;
+    
+    // Constructors
+    public BatchUserRequest() {}
+    
+    public BatchUserRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+    
+    // Getters and Setters
+    public List<Long> getIds() {
+        return ids;
+    }
+    
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
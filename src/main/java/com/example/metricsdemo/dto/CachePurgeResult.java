@@ -0,0 +1,51 @@
+package com.example.metricsdemo.dto;
+
+public class CachePurgeResult {
+    private long keysScanned;
+    private long keysDeleted;
+    private int batches;
+    private long durationMs;
+
+    public CachePurgeResult() {
+    }
+
+    public CachePurgeResult(long keysScanned, long keysDeleted, int batches, long durationMs) {
+        this.keysScanned = keysScanned;
+        this.keysDeleted = keysDeleted;
+        this.batches = batches;
+        this.durationMs = durationMs;
+    }
+
+    // Getters and setters
+    public long getKeysScanned() {
+        return keysScanned;
+    }
+
+    public void setKeysScanned(long keysScanned) {
+        this.keysScanned = keysScanned;
+    }
+
+    public long getKeysDeleted() {
+        return keysDeleted;
+    }
+
+    public void setKeysDeleted(long keysDeleted) {
+        this.keysDeleted = keysDeleted;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+}
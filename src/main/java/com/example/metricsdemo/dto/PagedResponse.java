@@ -10,6 +10,9 @@ public class PagedResponse<T> {
     private int totalPages;
     private boolean first;
     private boolean last;
+    // Keyset cursor for the next page; null when there is no next page
+    private String nextCursor;
+    private boolean hasNext;
 
     public PagedResponse() {
     }
@@ -22,6 +25,19 @@ public class PagedResponse<T> {
         this.totalPages = totalPages;
         this.first = page == 0;
         this.last = page == totalPages - 1;
+        this.hasNext = page < totalPages - 1;
+    }
+
+    // Cursor mode: no count(*) is run, so totalElements and totalPages are -1
+    public PagedResponse(List<T> content, int size, boolean first, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.totalElements = -1;
+        this.totalPages = -1;
+        this.first = first;
+        this.last = nextCursor == null;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
     }
 
     // Getters and setters
@@ -80,4 +96,20 @@ public class PagedResponse<T> {
     public void setLast(boolean last) {
         this.last = last;
     }
-}
\ No newline at end of file
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.metricsdemo.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+public class ReindexJobStatus {
+    private String jobId;
+    private String state;  // RUNNING, COMPLETED, FAILED
+    private String targetIndex;
+    private long documentsIndexed;
+    private long lastCommittedId;  // Resume point: every user with id <= this is in the target index
+    private double documentsPerSecond;
+    private String error;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startedAt;
+    
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    public ReindexJobStatus() {
+    }
+
+    public ReindexJobStatus(String jobId, String state, String targetIndex, long documentsIndexed,
+                            long lastCommittedId, double documentsPerSecond, String error,
+                            LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.jobId = jobId;
+        this.state = state;
+        this.targetIndex = targetIndex;
+        this.documentsIndexed = documentsIndexed;
+        this.lastCommittedId = lastCommittedId;
+        this.documentsPerSecond = documentsPerSecond;
+        this.error = error;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    // Getters and setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getTargetIndex() {
+        return targetIndex;
+    }
+
+    public void setTargetIndex(String targetIndex) {
+        this.targetIndex = targetIndex;
+    }
+
+    public long getDocumentsIndexed() {
+        return documentsIndexed;
+    }
+
+    public void setDocumentsIndexed(long documentsIndexed) {
+        this.documentsIndexed = documentsIndexed;
+    }
+
+    public long getLastCommittedId() {
+        return lastCommittedId;
+    }
+
+    public void setLastCommittedId(long lastCommittedId) {
+        this.lastCommittedId = lastCommittedId;
+    }
+
+    public double getDocumentsPerSecond() {
+        return documentsPerSecond;
+    }
+
+    public void setDocumentsPerSecond(double documentsPerSecond) {
+        this.documentsPerSecond = documentsPerSecond;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
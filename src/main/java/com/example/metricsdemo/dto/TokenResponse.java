@@ -0,0 +1,52 @@
+package com.example.metricsdemo.dto;
+
+import java.util.List;
+
+public class TokenResponse {
+    private String accessToken;
+    private String tokenType = "Bearer";
+    // Seconds until the token expires
+    private long expiresIn;
+    private List<String> roles;
+    
+    public TokenResponse() {}
+    
+    public TokenResponse(String accessToken, long expiresIn, List<String> roles) {
+        this.accessToken = accessToken;
+        this.expiresIn = expiresIn;
+        this.roles = roles;
+    }
+    
+    // Getters and Setters
+    public String getAccessToken() {
+        return accessToken;
+    }
+    
+    public void setAccessToken(String accessToken) {
+        this.accessToken = accessToken;
+    }
+    
+    public String getTokenType() {
+        return tokenType;
+    }
+    
+    public void setTokenType(String tokenType) {
+        this.tokenType = tokenType;
+    }
+    
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+    
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
+    
+    public List<String> getRoles() {
+        return roles;
+    }
+    
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.metricsdemo.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+// An AuthenticationServiceException so a rejected login check goes to the authentication entry
+// point (503 + Retry-After) instead of escaping the filter chain as a 500
+public class PasswordHashingBusyException extends AuthenticationServiceException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.metricsdemo.exception;
+
+import com.example.metricsdemo.dto.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+// GlobalExceptionHandler's counterpart for the reactive profile - same status codes, bodies and
+// counters. Authentication and authorization failures are answered by the security filter chain.
+@RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+
+    private final Counter userNotFoundCounter;
+    private final Counter generalErrorCounter;
+
+    public ReactiveExceptionHandler(MeterRegistry meterRegistry) {
+        this.userNotFoundCounter = Counter.builder("user_not_found_errors_total")
+                .description("Total number of user not found errors")
+                .register(meterRegistry);
+
+        this.generalErrorCounter = Counter.builder("general_errors_total")
+                .description("Total number of general errors")
+                .register(meterRegistry);
+    }
+
+    @ExceptionHandler(UserNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleUserNotFoundException(
+            UserNotFoundException ex, ServerHttpRequest request) {
+
+        userNotFoundCounter.increment();
+        logger.warn("User not found: {}", ex.getMessage());
+
+        return error(HttpStatus.NOT_FOUND, "Not Found", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ErrorResponse> handleIllegalArgumentException(
+            IllegalArgumentException ex, ServerHttpRequest request) {
+
+        logger.warn("Invalid argument: {}", ex.getMessage());
+
+        return error(HttpStatus.BAD_REQUEST, "Bad Request", ex.getMessage(), request);
+    }
+
+    @ExceptionHandler(SearchUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleSearchUnavailableException(
+            SearchUnavailableException ex, ServerHttpRequest request) {
+
+        logger.warn("Search unavailable: {}", ex.getMessage());
+
+        return error(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable", ex.getMessage(), request);
+    }
+
+    // The JDBC bridge queue is full - the database is the bottleneck, so shed load
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecutionException(
+            RejectedExecutionException ex, ServerHttpRequest request) {
+
+        logger.warn("Database bridge saturated - Path: {}", request.getPath());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errorResponse(HttpStatus.SERVICE_UNAVAILABLE, "Service Unavailable",
+                "Too many database reads in flight. Please retry shortly.", request));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGeneralException(
+            Exception ex, ServerHttpRequest request) {
+
+        generalErrorCounter.increment();
+        logger.error("Unexpected error occurred: {}", ex.getMessage(), ex);
+
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error",
+            "An unexpected error occurred. Please try again later.", request);
+    }
+
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, String error, String message,
+                                                       ServerHttpRequest request) {
+        return new ResponseEntity<>(errorResponse(status, error, message, request), status);
+    }
+
+    private static ErrorResponse errorResponse(HttpStatus status, String error, String message,
+                                               ServerHttpRequest request) {
+        return new ErrorResponse(status.value(), error, message, request.getPath().value());
+    }
+}
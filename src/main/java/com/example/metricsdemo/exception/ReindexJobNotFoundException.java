@@ -0,0 +1,8 @@
+package com.example.metricsdemo.exception;
+
+public class ReindexJobNotFoundException extends RuntimeException {
+    
+    public ReindexJobNotFoundException(String jobId) {
+        super("Reindex job not found with id: " + jobId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.metricsdemo.exception;
+
+public class SearchUnavailableException extends RuntimeException {
+    
+    public SearchUnavailableException(String message) {
+        super(message);
+    }
+    
+    public SearchUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
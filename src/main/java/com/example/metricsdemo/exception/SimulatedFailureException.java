@@ -0,0 +1,9 @@
+package com.example.metricsdemo.exception;
+
+// Thrown by LoadSimulator to inject a failure - answered with 500 like a real server error
+public class SimulatedFailureException extends RuntimeException {
+    
+    public SimulatedFailureException(String endpoint) {
+        super("Simulated failure injected into '" + endpoint + "'");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.metricsdemo.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.distribution.TimeWindowMax;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Request concurrency metrics for comparing platform-thread and virtual-thread request handling.
+ *
+ * Every meter is tagged execution_mode=platform|virtual (spring.threads.virtual.enabled), so runs
+ * of the two modes can be compared side by side:
+ * - http_server_inflight_requests / http_server_inflight_requests_max: requests being handled now,
+ *   and the peak over the last few minutes. With platform threads the peak is capped by
+ *   server.tomcat.threads.max; with virtual threads it is not.
+ * - request_thread_utilization: how busy the threads that run requests are. Platform mode: busy
+ *   Tomcat workers / max workers. Virtual mode: process CPU load scaled to the carrier pool
+ *   (carriers are platform threads that are only occupied while a virtual thread computes).
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class InFlightRequestsFilter extends OncePerRequestFilter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final TimeWindowMax maxInFlight = new TimeWindowMax(Clock.SYSTEM, TimeUnit.MINUTES.toMillis(1), 3);
+    private final MeterRegistry meterRegistry;
+    private final boolean virtualThreads;
+
+    public InFlightRequestsFilter(MeterRegistry meterRegistry,
+                                  @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.meterRegistry = meterRegistry;
+        this.virtualThreads = virtualThreads;
+        String mode = virtualThreads ? "virtual" : "platform";
+
+        Gauge.builder("http_server_inflight_requests", inFlight, AtomicInteger::get)
+                .description("HTTP requests currently being handled")
+                .tag("execution_mode", mode)
+                .register(meterRegistry);
+
+        Gauge.builder("http_server_inflight_requests_max", maxInFlight, TimeWindowMax::poll)
+                .description("Peak concurrent HTTP requests over the last few minutes")
+                .tag("execution_mode", mode)
+                .register(meterRegistry);
+
+        Gauge.builder("request_thread_utilization", this, InFlightRequestsFilter::requestThreadUtilization)
+                .description("Busy fraction of the threads running requests (Tomcat workers, or virtual thread carriers)")
+                .tag("execution_mode", mode)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        maxInFlight.record(inFlight.incrementAndGet());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private double requestThreadUtilization() {
+        if (virtualThreads) {
+            return carrierUtilization();
+        }
+        // Published by Tomcat when server.tomcat.mbeanregistry.enabled is set
+        Gauge busy = meterRegistry.find("tomcat.threads.busy").gauge();
+        Gauge max = meterRegistry.find("tomcat.threads.config.max").gauge();
+        if (busy == null || max == null || max.value() <= 0) {
+            return Double.NaN;
+        }
+        return busy.value() / max.value();
+    }
+
+    // Carriers only run while a virtual thread is on-CPU, so their utilization is the process
+    // CPU load expressed against the carrier pool rather than against all cores
+    private static double carrierUtilization() {
+        if (!(ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os)) {
+            return Double.NaN;
+        }
+        double cpuLoad = os.getProcessCpuLoad();
+        if (cpuLoad < 0) {
+            return Double.NaN;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", cores);
+        return Math.min(1.0, cpuLoad * cores / carriers);
+    }
+}
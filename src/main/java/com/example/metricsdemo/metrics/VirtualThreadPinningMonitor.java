@@ -0,0 +1,58 @@
+package com.example.metricsdemo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Counts virtual threads that blocked while pinned to their carrier (inside a synchronized block
+ * or a native frame), using the JDK 21 jdk.VirtualThreadPinned JFR event. A pinned virtual thread
+ * holds a carrier for the whole blocking call, so a rising count means some code path gives away
+ * the benefit of virtual threads. Only active with spring.threads.virtual.enabled.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Counter pinnedCounter;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry) {
+        this.pinnedCounter = Counter.builder("jvm_virtual_threads_pinned_total")
+                .description("Virtual threads that blocked for 20ms or more while pinned to a carrier thread")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(20)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, event -> {
+            pinnedCounter.increment();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Virtual thread pinned for {}ms:\n{}", event.getDuration().toMillis(), event.getStackTrace());
+            }
+        });
+        stream.startAsync();
+        logger.info("Watching for pinned virtual threads ({} JFR events)", PINNED_EVENT);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
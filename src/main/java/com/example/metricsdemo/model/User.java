@@ -9,8 +9,11 @@ import java.util.Set;
 @Table(name = "users", schema = "userschema")
 public class User {
     
+    // Pooled sequence ids (V6 sets the sequence increment to 50): Hibernate hands out ids from
+    // memory and can batch inserts, which IDENTITY prevents
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_id_seq", schema = "userschema", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -9,7 +9,8 @@ import jakarta.persistence.*;
 public class UserCredentials {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_credentials_seq")
+    @SequenceGenerator(name = "user_credentials_seq", sequenceName = "user_credentials_id_seq", schema = "userschema", allocationSize = 50)
     private Long id;
     
     @OneToOne
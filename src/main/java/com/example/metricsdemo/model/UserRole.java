@@ -8,7 +8,8 @@ import jakarta.persistence.*;
 public class UserRole {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_roles_seq")
+    @SequenceGenerator(name = "user_roles_seq", sequenceName = "user_roles_id_seq", schema = "userschema", allocationSize = 50)
     private Long id;
     
     @ManyToOne
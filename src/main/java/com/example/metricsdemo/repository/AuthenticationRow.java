@@ -0,0 +1,9 @@
+package com.example.metricsdemo.repository;
+
+// One row per role of the user (roleName is null for a user without roles)
+public interface AuthenticationRow {
+    Long getUserId();
+    String getUsername();
+    String getPassword();
+    String getRoleName();
+}
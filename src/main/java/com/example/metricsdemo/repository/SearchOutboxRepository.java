@@ -0,0 +1,22 @@
+package com.example.metricsdemo.repository;
+
+import com.example.metricsdemo.model.SearchOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SearchOutboxRepository extends JpaRepository<SearchOutboxEvent, Long> {
+    
+    // Claim due events for this dispatcher; rows locked by another instance are skipped, not waited on
+    @Query(value = "SELECT * FROM userschema.search_outbox WHERE next_attempt_at <= now() " +
+           "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SearchOutboxEvent> claimDue(@Param("limit") int limit);
+    
+    @Query("SELECT MIN(e.createdAt) FROM SearchOutboxEvent e")
+    LocalDateTime findOldestCreatedAt();
+}
@@ -2,8 +2,11 @@ package com.example.metricsdemo.repository;
 
 import com.example.metricsdemo.model.UserCredentials;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +14,10 @@ public interface UserCredentialsRepository extends JpaRepository<UserCredentials
     Optional<UserCredentials> findByUsername(String username);
     boolean existsByUsername(String username);
     Optional<UserCredentials> findByUserId(Long userId);
+    
+    // Everything authentication needs in one query - no entities, no lazy loads
+    @Query("SELECT u.id AS userId, c.username AS username, c.password AS password, r.name AS roleName " +
+           "FROM UserCredentials c JOIN c.user u LEFT JOIN u.userRoles ur LEFT JOIN ur.role r " +
+           "WHERE c.username = :username")
+    List<AuthenticationRow> findAuthenticationByUsername(@Param("username") String username);
 }
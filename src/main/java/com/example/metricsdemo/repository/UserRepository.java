@@ -3,19 +3,58 @@ package com.example.metricsdemo.repository;
 import com.example.metricsdemo.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByEmail(String email);
     
+    // Loads everything a UserSnapshot needs in a single query
+    @EntityGraph(attributePaths = {"department", "credentials", "userRoles", "userRoles.role"})
+    Optional<User> findWithDetailsById(Long id);
+    
+    // Bulk variant - one query for any number of ids
+    @EntityGraph(attributePaths = {"department", "credentials", "userRoles", "userRoles.role"})
+    List<User> findAllWithDetailsByIdIn(Collection<Long> ids);
+    
+    // Keyset (seek) pagination over ids - cost does not grow with the position in the table
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id ASC")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Planner's row estimate - no table scan; -1 if the table has never been analyzed
+    @Query(value = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'userschema.users'::regclass", nativeQuery = true)
+    Long estimateRowCount();
+    
     @Query("SELECT u FROM User u WHERE " +
            "LOWER(u.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.email) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(u.department.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "STR(u.id) LIKE CONCAT('%', :searchTerm, '%')")
     Page<User> searchUsers(@Param("searchTerm") String searchTerm, Pageable pageable);
+    
+    String SEARCH_IDS =
+        "SELECT id FROM userschema.users WHERE lower(name) LIKE :pattern ESCAPE '\\' " +
+        "UNION SELECT id FROM userschema.users WHERE lower(email) LIKE :pattern ESCAPE '\\' " +
+        "UNION SELECT u2.id FROM userschema.users u2 JOIN userschema.departments d ON d.id = u2.department_id " +
+        "WHERE lower(d.name) LIKE :pattern ESCAPE '\\' " +
+        "UNION SELECT id FROM userschema.users WHERE id = :exactId";
+    
+    // Same search, shaped for the pg_trgm indexes from V5: one UNION arm per indexed
+    // expression (an OR across the join would force a sequential scan), and an exact id
+    // match instead of STR(id) LIKE. pattern must already be lower-cased, escaped and wrapped in %.
+    @Query(value = "SELECT u.* FROM userschema.users u WHERE u.id IN (" + SEARCH_IDS + ") ORDER BY u.id",
+           countQuery = "SELECT count(*) FROM (" + SEARCH_IDS + ") matches",
+           nativeQuery = true)
+    Page<User> searchUsersIndexed(@Param("pattern") String pattern, @Param("exactId") long exactId, Pageable pageable);
+    
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", nativeQuery = true)
+    boolean isTrigramExtensionInstalled();
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.example.metricsdemo.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Burkhard-Keller tree over the index vocabulary, for finding every term within a small
+ * edit distance of a query term without comparing against the whole vocabulary.
+ *
+ * Matches are scored by optimal string alignment (Levenshtein plus adjacent transpositions),
+ * the distance Elasticsearch uses for fuzzy queries with transpositions enabled. OSA breaks the
+ * triangle inequality, so the tree itself is built and pruned with plain Levenshtein, which is a
+ * metric: a term within OSA distance k is within Levenshtein distance 2k (a transposition is two
+ * edits), so the search visits that radius and then keeps the terms within k. Terms are never
+ * removed; stale terms simply have no postings and are dropped when the index is rebuilt.
+ * Not thread-safe - EmbeddedUserIndex guards it with its lock.
+ */
+class BkTree {
+
+    record Match(String term, int distance) {
+    }
+
+    private static final class Node {
+        private final String term;
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String term) {
+            this.term = term;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    void add(String term) {
+        if (root == null) {
+            root = new Node(term);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = levenshtein(term, node.term);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(term));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    List<Match> search(String term, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        if (root == null) {
+            return matches;
+        }
+        int radius = 2 * maxDistance;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            // Exact distance is needed to choose which children to visit
+            int distance = levenshtein(term, node.term);
+            if (distance <= radius) {
+                int osa = osa(term, node.term, maxDistance);
+                if (osa <= maxDistance) {
+                    matches.add(new Match(node.term, osa));
+                }
+            }
+            // Triangle inequality: only children at distance d +/- radius can match
+            for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= radius) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return matches;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static int levenshtein(String a, String b) {
+        return distance(a, b, Integer.MAX_VALUE, false);
+    }
+
+    // Optimal string alignment distance; stops early once every cell in a row exceeds limit
+    static int osa(String a, String b, int limit) {
+        return distance(a, b, limit, true);
+    }
+
+    private static int distance(String a, String b, int limit, boolean transpositions) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > limit) {
+            return Math.abs(n - m);
+        }
+        int[] previousPrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (transpositions && i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return rowMin;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m];
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.metricsdemo.search;
+
+import com.example.metricsdemo.document.UserDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over user name, email and department name.
+ *
+ * Queries follow the Elasticsearch query in UserSearchRepository.fuzzySearch: a best_fields
+ * multi_match over name^2, email and departmentName with fuzziness AUTO. Each query token is
+ * expanded to the vocabulary terms within its AUTO edit distance (0 edits up to 2 characters,
+ * 1 up to 5, 2 beyond) via a BK-tree. A term scores BM25, scaled by
+ * 1 - edits / min(term lengths) like Lucene's fuzzy rewrite, with the expansions of one token
+ * sharing the highest document frequency among them (blended). A field's score is the sum over
+ * query tokens. A user's score is the best boosted field score. Ties are broken by id.
+ *
+ * Tokenization approximates the standard analyzer: lower-cased runs of letters, digits and
+ * '_', with '.' and '\'' kept only between two such characters ("tony.stark", "example.com").
+ *
+ * Reads take a shared lock and writes an exclusive one; a full rebuild swaps in new structures.
+ */
+public class EmbeddedUserIndex {
+
+    enum Field {
+        NAME(2.0),
+        EMAIL(1.0),
+        DEPARTMENT(1.0);
+
+        private final double boost;
+
+        Field(double boost) {
+            this.boost = boost;
+        }
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, UserDocument> documents = new HashMap<>();
+    // Per field: term -> (user id -> term frequency)
+    private Map<Field, Map<String, Map<Long, Integer>>> postings = emptyPostings();
+    // Per field: user id -> number of tokens
+    private Map<Field, Map<Long, Integer>> fieldLengths = emptyFieldLengths();
+    private Map<Field, Long> totalLengths = emptyTotals();
+    private BkTree vocabulary = new BkTree();
+
+    public void put(UserDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(document.getId());
+            addInternal(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long userId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Rebuilds every structure from scratch, which also drops terms no user has any more
+    public void replaceAll(Collection<UserDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            this.documents = new HashMap<>();
+            this.postings = emptyPostings();
+            this.fieldLengths = emptyFieldLengths();
+            this.totalLengths = emptyTotals();
+            this.vocabulary = new BkTree();
+            for (UserDocument document : documents) {
+                addInternal(document);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Page<UserDocument> search(String query, Pageable pageable) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            // Expand each query token once; the expansions are shared by all fields
+            List<List<BkTree.Match>> expansions = new ArrayList<>(queryTokens.size());
+            for (String token : queryTokens) {
+                expansions.add(vocabulary.search(token, maxEdits(token)));
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (Field field : Field.values()) {
+                Map<Long, Double> fieldScores = scoreField(field, queryTokens, expansions);
+                for (Map.Entry<Long, Double> entry : fieldScores.entrySet()) {
+                    double boosted = field.boost * entry.getValue();
+                    scores.merge(entry.getKey(), boosted, Math::max);
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+            int from = (int) Math.min(pageable.getOffset(), ranked.size());
+            int to = Math.min(from + pageable.getPageSize(), ranked.size());
+            List<UserDocument> content = new ArrayList<>(to - from);
+            for (Map.Entry<Long, Double> entry : ranked.subList(from, to)) {
+                content.add(documents.get(entry.getKey()));
+            }
+            return new PageImpl<>(content, pageable, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int vocabularySize() {
+        lock.readLock().lock();
+        try {
+            return vocabulary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> scoreField(Field field, List<String> queryTokens, List<List<BkTree.Match>> expansions) {
+        Map<String, Map<Long, Integer>> fieldPostings = postings.get(field);
+        Map<Long, Integer> lengths = fieldLengths.get(field);
+        int documentCount = documents.size();
+        double averageLength = documentCount > 0 ? (double) totalLengths.get(field) / documentCount : 0;
+
+        Map<Long, Double> fieldScores = new HashMap<>();
+        for (int i = 0; i < queryTokens.size(); i++) {
+            String token = queryTokens.get(i);
+
+            // Blended document frequency: the most common expansion's, so a rare typo is not
+            // rewarded with a higher idf than the correctly spelled term
+            int blendedDf = 0;
+            for (BkTree.Match match : expansions.get(i)) {
+                Map<Long, Integer> termPostings = fieldPostings.get(match.term());
+                if (termPostings != null) {
+                    blendedDf = Math.max(blendedDf, termPostings.size());
+                }
+            }
+            if (blendedDf == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (documentCount - blendedDf + 0.5) / (blendedDf + 0.5));
+
+            // Best expansion per user for this token
+            Map<Long, Double> tokenScores = new HashMap<>();
+            for (BkTree.Match match : expansions.get(i)) {
+                Map<Long, Integer> termPostings = fieldPostings.get(match.term());
+                if (termPostings == null) {
+                    continue;
+                }
+                double fuzzyBoost = match.distance() == 0 ? 1.0
+                    : 1.0 - (double) match.distance() / Math.min(token.length(), match.term().length());
+                for (Map.Entry<Long, Integer> posting : termPostings.entrySet()) {
+                    int tf = posting.getValue();
+                    double norm = averageLength > 0 ? lengths.get(posting.getKey()) / averageLength : 1.0;
+                    double score = fuzzyBoost * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * norm));
+                    tokenScores.merge(posting.getKey(), score, Math::max);
+                }
+            }
+            tokenScores.forEach((userId, score) -> fieldScores.merge(userId, score, Double::sum));
+        }
+        return fieldScores;
+    }
+
+    private void addInternal(UserDocument document) {
+        Long userId = document.getId();
+        documents.put(userId, document);
+        addField(Field.NAME, userId, document.getName());
+        addField(Field.EMAIL, userId, document.getEmail());
+        addField(Field.DEPARTMENT, userId, document.getDepartmentName());
+    }
+
+    private void addField(Field field, Long userId, String text) {
+        List<String> tokens = tokenize(text);
+        Map<String, Map<Long, Integer>> fieldPostings = postings.get(field);
+        for (String token : tokens) {
+            fieldPostings.computeIfAbsent(token, t -> new HashMap<>()).merge(userId, 1, Integer::sum);
+            vocabulary.add(token);
+        }
+        fieldLengths.get(field).put(userId, tokens.size());
+        totalLengths.merge(field, (long) tokens.size(), Long::sum);
+    }
+
+    private void removeInternal(Long userId) {
+        UserDocument existing = documents.remove(userId);
+        if (existing == null) {
+            return;
+        }
+        removeField(Field.NAME, userId, existing.getName());
+        removeField(Field.EMAIL, userId, existing.getEmail());
+        removeField(Field.DEPARTMENT, userId, existing.getDepartmentName());
+    }
+
+    private void removeField(Field field, Long userId, String text) {
+        Map<String, Map<Long, Integer>> fieldPostings = postings.get(field);
+        for (String token : tokenize(text)) {
+            Map<Long, Integer> termPostings = fieldPostings.get(token);
+            if (termPostings != null) {
+                termPostings.remove(userId);
+                if (termPostings.isEmpty()) {
+                    fieldPostings.remove(token);
+                }
+            }
+        }
+        Integer length = fieldLengths.get(field).remove(userId);
+        if (length != null) {
+            totalLengths.merge(field, (long) -length, Long::sum);
+        }
+    }
+
+    // Elasticsearch fuzziness AUTO
+    static int maxEdits(String token) {
+        int length = token.length();
+        if (length <= 2) {
+            return 0;
+        }
+        return length <= 5 ? 1 : 2;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (isWordChar(c)) {
+                current.append(c);
+            } else if ((c == '.' || c == '\'') && current.length() > 0
+                    && i + 1 < lower.length() && isWordChar(lower.charAt(i + 1))) {
+                // Mid-word punctuation, as in the standard tokenizer
+                current.append(c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static Map<Field, Map<String, Map<Long, Integer>>> emptyPostings() {
+        Map<Field, Map<String, Map<Long, Integer>>> map = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            map.put(field, new HashMap<>());
+        }
+        return map;
+    }
+
+    private static Map<Field, Map<Long, Integer>> emptyFieldLengths() {
+        Map<Field, Map<Long, Integer>> map = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            map.put(field, new HashMap<>());
+        }
+        return map;
+    }
+
+    private static Map<Field, Long> emptyTotals() {
+        Map<Field, Long> map = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            map.put(field, 0L);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.metricsdemo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-lived cache of verified HTTP Basic credentials.
+ *
+ * With stateless Basic auth every request would load the credentials and run a full BCrypt
+ * check. After one successful check this remembers, per username, an HMAC of the password that
+ * was verified plus the resulting principal and authorities. A later request presenting a
+ * password with the same HMAC is authenticated from memory. The HMAC key is random per process
+ * and never leaves it, so the cache holds nothing that can be checked offline against a guess.
+ *
+ * Entries are dropped when a user's password or roles change or the user is deleted, on this
+ * node immediately and on other nodes via Redis pub/sub; the TTL bounds staleness if a
+ * broadcast is lost.
+ */
+@Component
+public class AuthenticationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationCache.class);
+
+    private static final String INVALIDATION_CHANNEL = "auth-cache-invalidation";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    public record CachedPrincipal(UserDetails principal, Collection<? extends GrantedAuthority> authorities) {
+    }
+
+    private record Entry(byte[] secretDigest, CachedPrincipal verified) {
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final boolean enabled;
+    private final Cache<String, Entry> cache;
+    private final SecretKeySpec hmacKey;
+    private final ThreadLocal<Mac> macs;
+    // Bumped on every invalidation, so a verification that raced with one is not cached
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter invalidationCounter;
+
+    public AuthenticationCache(MeterRegistry meterRegistry,
+                               @Value("${app.security.auth-cache.enabled:true}") boolean enabled,
+                               @Value("${app.security.auth-cache.max-size:10000}") long maxSize,
+                               @Value("${app.security.auth-cache.ttl:60s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        this.hmacKey = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+
+        this.hitCounter = Counter.builder("auth_cache_hits_total")
+                .description("Basic auth requests authenticated from the verified-credential cache")
+                .register(meterRegistry);
+
+        this.missCounter = Counter.builder("auth_cache_misses_total")
+                .description("Basic auth requests that needed a database lookup and BCrypt check")
+                .register(meterRegistry);
+
+        this.invalidationCounter = Counter.builder("auth_cache_invalidations_total")
+                .description("Verified-credential cache entries dropped after a password or role change")
+                .register(meterRegistry);
+
+        Gauge.builder("auth_cache_size", cache, Cache::estimatedSize)
+                .description("Approximate number of users in the verified-credential cache")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        listenerContainer.addMessageListener(this::onInvalidationMessage, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CachedPrincipal get(String username, String presentedPassword) {
+        Entry entry = cache.getIfPresent(username);
+        // Constant-time compare, so response timing says nothing about how close a guess was
+        if (entry != null && MessageDigest.isEqual(entry.secretDigest(), digest(username, presentedPassword))) {
+            hitCounter.increment();
+            return entry.verified();
+        }
+        missCounter.increment();
+        return null;
+    }
+
+    public long currentEpoch() {
+        return invalidationEpoch.get();
+    }
+
+    // Caches a successful verification unless an invalidation happened since epochBefore was read
+    public void put(String username, String presentedPassword, CachedPrincipal verified, long epochBefore) {
+        Entry entry = new Entry(digest(username, presentedPassword), verified);
+        cache.put(username, entry);
+        if (invalidationEpoch.get() != epochBefore) {
+            cache.asMap().remove(username, entry);
+        }
+    }
+
+    public void invalidate(String username) {
+        invalidateLocally(username);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + username);
+        } catch (Exception e) {
+            // Other nodes fall back to the TTL if the broadcast is lost
+            logger.warn("Failed to publish auth cache invalidation for {}: {}", username, e.getMessage());
+        }
+    }
+
+    private void invalidateLocally(String username) {
+        invalidationEpoch.incrementAndGet();
+        cache.invalidate(username);
+        invalidationCounter.increment();
+    }
+
+    // Message format: "<nodeId>|<username>"
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+        invalidateLocally(body.substring(separator + 1));
+    }
+
+    private byte[] digest(String username, String password) {
+        Mac mac = macs.get();
+        // Username is part of the input so equal passwords of different users digest differently
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(hmacKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
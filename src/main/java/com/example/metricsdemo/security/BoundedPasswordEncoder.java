@@ -0,0 +1,123 @@
+package com.example.metricsdemo.security;
+
+import com.example.metricsdemo.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt encoder that runs every hash and verification on the bounded password-hash pool.
+ *
+ * BCrypt is deliberately slow and CPU-bound. Run on request threads, a burst of HTTP Basic
+ * logins occupies the whole Tomcat pool and starves every other endpoint. Here at most one
+ * hash per pool thread runs at a time, a bounded queue absorbs short bursts, and anything
+ * beyond that is rejected with {@link PasswordHashingBusyException} (503) instead of queueing
+ * without limit. Callers still wait for their own result, but they wait off-CPU.
+ *
+ * upgradeEncoding reports hashes made with a lower cost than app.security.bcrypt.strength,
+ * which makes DaoAuthenticationProvider rehash the password on the next successful login.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(int strength, ThreadPoolTaskExecutor executor, MeterRegistry meterRegistry) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.executor = executor;
+
+        this.encodeTimer = Timer.builder("password_hash_duration")
+                .description("CPU time of one BCrypt operation on the password-hash pool")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+
+        this.matchesTimer = Timer.builder("password_hash_duration")
+                .description("CPU time of one BCrypt operation on the password-hash pool")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+
+        this.queueWaitTimer = Timer.builder("password_hash_queue_wait")
+                .description("Time a BCrypt operation waited for a password-hash thread")
+                .register(meterRegistry);
+
+        this.rejectedCounter = Counter.builder("password_hash_rejected_total")
+                .description("BCrypt operations rejected because the password-hash queue was full")
+                .register(meterRegistry);
+
+        Gauge.builder("password_hash_queue_depth", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .description("BCrypt operations waiting for a password-hash thread")
+                .register(meterRegistry);
+
+        Gauge.builder("password_hash_active_threads", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Password-hash threads currently computing a hash")
+                .register(meterRegistry);
+
+        Gauge.builder("password_hash_strength", () -> strength)
+                .description("Configured BCrypt cost factor (log2 rounds)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(encodeAsync(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // Only parses the hash prefix - cheap enough for the calling thread
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    // For bulk callers that hash several passwords at once without tying up one thread per hash
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return submit(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    public int getParallelism() {
+        return executor.getMaxPoolSize();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> operation) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                return timer.record(operation);
+            }, executor);
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            throw new PasswordHashingBusyException("Password hashing is saturated, retry shortly", e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.metricsdemo.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Puts the verified-credential cache in front of the DAO provider. A hit skips the
+ * credentials query and the BCrypt check; a miss verifies as before and caches the result.
+ * Failed attempts are never cached, so a wrong password always pays the full check.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final AuthenticationCache authenticationCache;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, AuthenticationCache authenticationCache) {
+        this.delegate = delegate;
+        this.authenticationCache = authenticationCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (!authenticationCache.isEnabled() || !(authentication.getCredentials() instanceof String password)) {
+            return delegate.authenticate(authentication);
+        }
+
+        String username = authentication.getName();
+        AuthenticationCache.CachedPrincipal cached = authenticationCache.get(username, password);
+        if (cached != null) {
+            // A fresh token each time - ProviderManager erases credentials on the one it returns
+            UsernamePasswordAuthenticationToken result = UsernamePasswordAuthenticationToken.authenticated(
+                cached.principal(), null, cached.authorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+
+        long epoch = authenticationCache.currentEpoch();
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.getPrincipal() instanceof UserDetails principal) {
+            authenticationCache.put(username, password,
+                new AuthenticationCache.CachedPrincipal(principal, result.getAuthorities()), epoch);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+}
@@ -1,38 +1,43 @@
 package com.example.metricsdemo.security;
 
-import com.example.metricsdemo.model.User;
-import com.example.metricsdemo.model.UserCredentials;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.List;
 
+/**
+ * Authenticated principal built from the single-query authentication projection.
+ * Holds plain values only - no JPA entities - so reading the authorities never triggers a
+ * lazy load and the principal can be cached and shared between request threads.
+ */
 public class CustomUserDetails implements UserDetails {
     
-    private final UserCredentials credentials;
+    private final Long userId;
+    private final String username;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
     
-    public CustomUserDetails(UserCredentials credentials) {
-        this.credentials = credentials;
+    public CustomUserDetails(Long userId, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        this.userId = userId;
+        this.username = username;
+        this.password = password;
+        this.authorities = List.copyOf(authorities);
     }
     
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        // Get all roles from the user's UserRole relationships
-        return credentials.getUser().getUserRoles().stream()
-            .map(userRole -> new SimpleGrantedAuthority(userRole.getRole().getName()))
-            .collect(Collectors.toList());
+        return authorities;
     }
     
     @Override
     public String getPassword() {
-        return credentials.getPassword();
+        return password;
     }
     
     @Override
     public String getUsername() {
-        return credentials.getUsername();
+        return username;
     }
     
     @Override
@@ -55,8 +60,8 @@ public class CustomUserDetails implements UserDetails {
         return true;
     }
     
-    // Expose the underlying User entity for controller access
-    public User getUser() {
-        return credentials.getUser();
+    // ID of the underlying User, for controllers that need it without another lookup
+    public Long getUserId() {
+        return userId;
     }
 }
@@ -1,30 +1,73 @@
 package com.example.metricsdemo.security;
 
 import com.example.metricsdemo.model.UserCredentials;
+import com.example.metricsdemo.repository.AuthenticationRow;
 import com.example.metricsdemo.repository.UserCredentialsRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class);
     
     private final UserCredentialsRepository userCredentialsRepository;
+    private final Counter passwordRehashCounter;
     
     @Autowired
-    public CustomUserDetailsService(UserCredentialsRepository userCredentialsRepository) {
+    public CustomUserDetailsService(UserCredentialsRepository userCredentialsRepository, MeterRegistry meterRegistry) {
         this.userCredentialsRepository = userCredentialsRepository;
+        this.passwordRehashCounter = Counter.builder("password_rehash_total")
+                .description("Passwords rehashed on login because their BCrypt cost was below the configured strength")
+                .register(meterRegistry);
     }
     
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        UserCredentials credentials = userCredentialsRepository.findByUsername(username)
+        // One query for credentials and role names instead of credentials + user + roles loads
+        List<AuthenticationRow> rows = userCredentialsRepository.findAuthenticationByUsername(username);
+        if (rows.isEmpty()) {
+            throw new UsernameNotFoundException("User not found with username: " + username);
+        }
+        
+        List<GrantedAuthority> authorities = rows.stream()
+            .map(AuthenticationRow::getRoleName)
+            .filter(Objects::nonNull)
+            .distinct()
+            .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+            .toList();
+        AuthenticationRow first = rows.get(0);
+        return new CustomUserDetails(first.getUserId(), first.getUsername(), first.getPassword(), authorities);
+    }
+    
+    // Called by DaoAuthenticationProvider after a successful login when
+    // PasswordEncoder.upgradeEncoding says the stored hash is weaker than configured
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserCredentials credentials = userCredentialsRepository.findByUsername(user.getUsername())
             .orElseThrow(() -> new UsernameNotFoundException(
-                "User not found with username: " + username
+                "User not found with username: " + user.getUsername()
             ));
         
-        return new CustomUserDetails(credentials);
+        credentials.setPassword(newPassword);
+        passwordRehashCounter.increment();
+        logger.info("Rehashed password for {} with the current BCrypt strength", user.getUsername());
+        
+        return new CustomUserDetails(credentials.getUser().getId(), credentials.getUsername(), newPassword, user.getAuthorities());
     }
 }
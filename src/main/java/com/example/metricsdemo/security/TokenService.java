@@ -0,0 +1,147 @@
+package com.example.metricsdemo.security;
+
+import com.example.metricsdemo.dto.TokenResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Issues and checks the signed access tokens behind POST /api/auth/token.
+ *
+ * A token is an HS256 JWT carrying the username (sub), role names and a per-user token version.
+ * Validating it is a signature check plus one Redis GET for the current version - no database
+ * lookup and no BCrypt. A password or role change increments the user's version, which
+ * rejects every token issued before it; the short expiry bounds the damage if Redis is
+ * unreachable and the check fails open.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ISSUER = "metrics-demo";
+    private static final String VERSION_KEY_PREFIX = "auth:token-version:";
+    public static final String ROLES_CLAIM = "roles";
+    private static final String VERSION_CLAIM = "ver";
+
+    @Autowired
+    private JwtEncoder jwtEncoder;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final Duration tokenTtl;
+
+    private final Counter issuedCounter;
+    private final Counter revocationCounter;
+    private final Counter rejectedCounter;
+
+    public TokenService(MeterRegistry meterRegistry,
+                        @Value("${app.security.token.ttl:15m}") Duration tokenTtl) {
+        this.tokenTtl = tokenTtl;
+
+        this.issuedCounter = Counter.builder("auth_tokens_issued_total")
+                .description("Access tokens issued by the login endpoint")
+                .register(meterRegistry);
+
+        this.revocationCounter = Counter.builder("auth_token_revocations_total")
+                .description("Users whose outstanding tokens were revoked by a password or role change")
+                .register(meterRegistry);
+
+        this.rejectedCounter = Counter.builder("auth_tokens_revoked_rejected_total")
+                .description("Requests rejected because their token was issued before a revocation")
+                .register(meterRegistry);
+    }
+
+    public TokenResponse issue(Authentication authentication) {
+        List<String> roles = authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .toList();
+        Instant now = Instant.now();
+
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+            .issuer(ISSUER)
+            .subject(authentication.getName())
+            .issuedAt(now)
+            .expiresAt(now.plus(tokenTtl))
+            .claim(ROLES_CLAIM, roles)
+            .claim(VERSION_CLAIM, currentVersion(authentication.getName()))
+            .build();
+        JwsHeader header = JwsHeader.with(MacAlgorithm.HS256).build();
+        String token = jwtEncoder.encode(JwtEncoderParameters.from(header, claims)).getTokenValue();
+
+        issuedCounter.increment();
+        return new TokenResponse(token, tokenTtl.toSeconds(), roles);
+    }
+
+    // Invalidates every token issued to this user so far
+    public void revoke(String username) {
+        try {
+            stringRedisTemplate.opsForValue().increment(versionKey(username));
+            revocationCounter.increment();
+        } catch (Exception e) {
+            logger.warn("Failed to revoke tokens for {} - they stay valid until they expire: {}", username, e.getMessage());
+        }
+    }
+
+    // Standard expiry/issuer checks, then the revocation check
+    public OAuth2TokenValidator<Jwt> tokenValidator() {
+        return new DelegatingOAuth2TokenValidator<>(standardValidator(),
+            jwt -> checkVersion(jwt, currentVersion(jwt.getSubject())));
+    }
+
+    // Expiry and issuer only - the reactive decoder does the revocation check with a non-blocking GET
+    public OAuth2TokenValidator<Jwt> standardValidator() {
+        return JwtValidators.createDefaultWithIssuer(ISSUER);
+    }
+
+    // Rejects tokens whose version is older than the user's current one
+    public OAuth2TokenValidatorResult checkVersion(Jwt jwt, long currentVersion) {
+        Object claim = jwt.getClaims().get(VERSION_CLAIM);
+        long tokenVersion = claim instanceof Number number ? number.longValue() : -1;
+        if (tokenVersion >= currentVersion) {
+            return OAuth2TokenValidatorResult.success();
+        }
+        rejectedCounter.increment();
+        return OAuth2TokenValidatorResult.failure(
+            new OAuth2Error("invalid_token", "Token was revoked by a password or role change", null));
+    }
+
+    // Redis key holding the user's current token version (absent means 0)
+    public static String versionKey(String username) {
+        return VERSION_KEY_PREFIX + username;
+    }
+
+    private long currentVersion(String username) {
+        try {
+            String version = stringRedisTemplate.opsForValue().get(versionKey(username));
+            return version != null ? Long.parseLong(version) : 0;
+        } catch (Exception e) {
+            // Fail open: with Redis down, revocation falls back to the token expiry
+            logger.warn("Could not read token version for {}: {}", username, e.getMessage());
+            return 0;
+        }
+    }
+}
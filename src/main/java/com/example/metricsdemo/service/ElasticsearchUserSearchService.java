@@ -0,0 +1,144 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.document.UserDocument;
+import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.repository.UserSearchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.StreamSupport;
+
+@Service
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchUserSearchService implements UserSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchUserSearchService.class);
+
+    @Autowired
+    private UserSearchRepository userSearchRepository;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    // Index being built by a running reindex job. Live writes are mirrored into it so
+    // changes made while the job streams the table are not lost when the alias is swapped.
+    private volatile String shadowIndex;
+
+    // Users deleted while the shadow index is set. A reindex chunk read before the delete can
+    // still create the document afterwards, so the job deletes these again once its chunks are in.
+    private final Set<Long> shadowDeletes = ConcurrentHashMap.newKeySet();
+
+    // Index a user in Elasticsearch - the document carries every UserDTO field,
+    // so search results can be served from _source alone
+    @Override
+    public void indexUser(User user) {
+        try {
+            UserDocument doc = toDocument(UserSnapshot.from(user));
+            userSearchRepository.save(doc);
+            String shadow = shadowIndex;
+            if (shadow != null) {
+                elasticsearchOperations.save(doc, IndexCoordinates.of(shadow));
+            }
+            logger.info("Indexed user {} in Elasticsearch", user.getId());
+        } catch (Exception e) {
+            logger.error("Failed to index user {} in Elasticsearch: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    // Fuzzy search with typo tolerance
+    @Override
+    public Page<UserDocument> fuzzySearch(String searchTerm, Pageable pageable) {
+        logger.info("Performing fuzzy search for: {}", searchTerm);
+        return userSearchRepository.fuzzySearch(searchTerm, pageable);
+    }
+
+    // Delete user from index
+    @Override
+    public void deleteUser(Long userId) {
+        try {
+            userSearchRepository.deleteById(userId);
+            String shadow = shadowIndex;
+            if (shadow != null) {
+                shadowDeletes.add(userId);
+                elasticsearchOperations.delete(String.valueOf(userId), IndexCoordinates.of(shadow));
+            }
+            logger.info("Deleted user {} from Elasticsearch", userId);
+        } catch (Exception e) {
+            logger.error("Failed to delete user {} from Elasticsearch: {}", userId, e.getMessage());
+        }
+    }
+
+    // Index several users in one _bulk request
+    @Override
+    public void indexUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        List<IndexQuery> queries = users.stream()
+            .map(user -> toIndexQuery(toDocument(UserSnapshot.from(user))))
+            .toList();
+        elasticsearchOperations.bulkIndex(queries, UserDocument.class);
+        String shadow = shadowIndex;
+        if (shadow != null) {
+            elasticsearchOperations.bulkIndex(queries, IndexCoordinates.of(shadow));
+        }
+    }
+
+    @Override
+    public void deleteUsers(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        userSearchRepository.deleteAllById(userIds);
+        String shadow = shadowIndex;
+        if (shadow != null) {
+            for (Long userId : userIds) {
+                shadowDeletes.add(userId);
+                elasticsearchOperations.delete(String.valueOf(userId), IndexCoordinates.of(shadow));
+            }
+        }
+    }
+
+    public IndexQuery toIndexQuery(UserDocument doc) {
+        return new IndexQueryBuilder()
+            .withId(String.valueOf(doc.getId()))
+            .withObject(doc)
+            .build();
+    }
+
+    // Index a small set of users in one _bulk request (large tables go through UserReindexService)
+    @Override
+    public void reindexAll(Iterable<User> users) {
+        logger.info("Reindexing all users in Elasticsearch");
+        List<UserDocument> docs = StreamSupport.stream(users.spliterator(), false)
+            .map(user -> toDocument(UserSnapshot.from(user)))
+            .toList();
+        userSearchRepository.saveAll(docs);
+    }
+
+    void setShadowIndex(String shadowIndex) {
+        shadowDeletes.clear();
+        this.shadowIndex = shadowIndex;
+    }
+
+    // Returns and forgets the users deleted from the shadow index so far
+    Set<Long> drainShadowDeletes() {
+        Set<Long> drained = Set.copyOf(shadowDeletes);
+        shadowDeletes.removeAll(drained);
+        return drained;
+    }
+}
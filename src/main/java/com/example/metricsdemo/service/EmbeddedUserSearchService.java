@@ -0,0 +1,133 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.document.UserDocument;
+import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.repository.UserRepository;
+import com.example.metricsdemo.search.EmbeddedUserIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * Search without Elasticsearch: an in-process fuzzy index (see {@link EmbeddedUserIndex}),
+ * built from the user table at startup and kept current by the search outbox dispatcher.
+ * Enabled with app.search.engine=embedded (the embedded-search profile).
+ *
+ * Every instance holds its own index but the outbox is drained by one instance per batch,
+ * so this engine is meant for single-instance deployments.
+ */
+@Service
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "embedded")
+public class EmbeddedUserSearchService implements UserSearchService, SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedUserSearchService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.search.reindex.chunk-size:1000}")
+    private int chunkSize;
+
+    private final EmbeddedUserIndex index = new EmbeddedUserIndex();
+    private final Timer queryTimer;
+
+    public EmbeddedUserSearchService(MeterRegistry meterRegistry) {
+        this.queryTimer = Timer.builder("user_search_embedded_query_duration")
+                .description("Time taken per query against the embedded search index")
+                .register(meterRegistry);
+
+        Gauge.builder("user_search_embedded_documents", index, EmbeddedUserIndex::size)
+                .description("Number of users in the embedded search index")
+                .register(meterRegistry);
+
+        Gauge.builder("user_search_embedded_terms", index, EmbeddedUserIndex::vocabularySize)
+                .description("Number of distinct terms in the embedded search index vocabulary")
+                .register(meterRegistry);
+    }
+
+    // Runs once every singleton exists but before the context refresh completes, which is when
+    // @Scheduled tasks start - so the outbox dispatcher cannot put or remove a user that this
+    // full swap would then erase. Changes committed meanwhile stay in the outbox until then.
+    @Override
+    public void afterSingletonsInstantiated() {
+        buildIndex();
+    }
+
+    // Streams the user table in keyset chunks, then swaps the whole index in one step
+    private void buildIndex() {
+        long start = System.nanoTime();
+        List<UserDocument> documents = new ArrayList<>();
+        long afterId = 0L;
+        while (true) {
+            List<Long> ids = userRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            userRepository.findAllWithDetailsByIdIn(ids).forEach(user -> documents.add(toDocument(UserSnapshot.from(user))));
+            afterId = ids.get(ids.size() - 1);
+        }
+        index.replaceAll(documents);
+        logger.info("Built embedded search index: {} users, {} terms in {}ms", documents.size(),
+            index.vocabularySize(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void indexUser(User user) {
+        try {
+            index.put(toDocument(UserSnapshot.from(user)));
+            logger.info("Indexed user {} in embedded search index", user.getId());
+        } catch (Exception e) {
+            logger.error("Failed to index user {} in embedded search index: {}", user.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void deleteUser(Long userId) {
+        index.remove(userId);
+        logger.info("Deleted user {} from embedded search index", userId);
+    }
+
+    @Override
+    public void indexUsers(List<User> users) {
+        for (User user : users) {
+            index.put(toDocument(UserSnapshot.from(user)));
+        }
+    }
+
+    @Override
+    public void deleteUsers(Collection<Long> userIds) {
+        for (Long userId : userIds) {
+            index.remove(userId);
+        }
+    }
+
+    @Override
+    public void reindexAll(Iterable<User> users) {
+        logger.info("Rebuilding embedded search index");
+        index.replaceAll(StreamSupport.stream(users.spliterator(), false)
+            .map(user -> toDocument(UserSnapshot.from(user)))
+            .toList());
+    }
+
+    @Override
+    public Page<UserDocument> fuzzySearch(String searchTerm, Pageable pageable) {
+        return queryTimer.record(() -> index.search(searchTerm, pageable));
+    }
+}
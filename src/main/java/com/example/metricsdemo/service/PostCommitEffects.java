@@ -0,0 +1,153 @@
+package com.example.metricsdemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Side effects of a user write that must wait for its commit: evicting the cached snapshot
+ * and dropping cached logins / issued tokens. Each is a Redis round trip or two. Effects are
+ * not ordered across transactions, so each must be idempotent - never a write of a value.
+ *
+ * Effects registered during a transaction run once it commits (never on rollback), in the
+ * mode set by app.write.consistency:
+ * - sync: one after another on the request thread - the response waits for the sum
+ * - parallel: fanned out on the write-effects pool, the request thread runs one itself and
+ *   waits for the rest - the response waits for the slowest, and still reads its own write
+ * - async: handed to the write-effects pool - the response does not wait; a read right after
+ *   the write may still hit the old cached snapshot for a few milliseconds
+ *
+ * write_effect_duration{stage} times each effect; write_effects_blocking_duration{mode} is how
+ * long the request thread spent on them, so the modes can be compared directly.
+ */
+@Component
+public class PostCommitEffects {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostCommitEffects.class);
+
+    private record Effect(String stage, Runnable action) {
+    }
+
+    private final ThreadPoolTaskExecutor writeEffectsExecutor;
+    private final MeterRegistry meterRegistry;
+    private final String consistency;
+    private final Duration parallelTimeout;
+    private final Timer blockingTimer;
+
+    public PostCommitEffects(ThreadPoolTaskExecutor writeEffectsExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.write.consistency:parallel}") String consistency,
+                             @Value("${app.write.parallel-timeout:2s}") Duration parallelTimeout) {
+        if (!List.of("sync", "parallel", "async").contains(consistency)) {
+            throw new IllegalArgumentException("Unknown app.write.consistency: " + consistency);
+        }
+        this.writeEffectsExecutor = writeEffectsExecutor;
+        this.meterRegistry = meterRegistry;
+        this.consistency = consistency;
+        this.parallelTimeout = parallelTimeout;
+
+        this.blockingTimer = Timer.builder("write_effects_blocking_duration")
+                .description("Time the request thread spent on post-commit side effects of a user write")
+                .tag("mode", consistency)
+                .register(meterRegistry);
+    }
+
+    // Runs the effect after the current transaction commits; with no transaction, right away
+    public void afterCommit(String stage, Runnable action) {
+        Effect effect = new Effect(stage, action);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            run(List.of(effect));
+            return;
+        }
+
+        // One synchronization per transaction, so all of its effects are fanned out together
+        @SuppressWarnings("unchecked")
+        List<Effect> pending = (List<Effect>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            List<Effect> effects = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, effects);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    run(effects);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PostCommitEffects.this);
+                }
+            });
+            pending = effects;
+        }
+        pending.add(effect);
+    }
+
+    private void run(List<Effect> effects) {
+        long start = System.nanoTime();
+        switch (consistency) {
+            case "sync" -> effects.forEach(this::runStage);
+            case "parallel" -> runParallel(effects);
+            default -> effects.forEach(effect -> writeEffectsExecutor.execute(() -> runStage(effect)));
+        }
+        blockingTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // The caller runs the first effect itself and joins the rest, so it never returns before its
+    // children finish - unless they overrun the timeout, in which case they finish in the background
+    private void runParallel(List<Effect> effects) {
+        List<CompletableFuture<Void>> forked = effects.stream()
+            .skip(1)
+            .map(effect -> CompletableFuture.runAsync(() -> runStage(effect), writeEffectsExecutor))
+            .toList();
+        runStage(effects.get(0));
+        if (forked.isEmpty()) {
+            return;
+        }
+
+        try {
+            CompletableFuture.allOf(forked.toArray(new CompletableFuture[0]))
+                .get(parallelTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Post-commit effects still running after {}ms - not waiting for them", parallelTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // runStage never throws - nothing to report
+        }
+    }
+
+    // The write is committed whatever happens here, so failures are logged and counted, not thrown
+    private void runStage(Effect effect) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            effect.action().run();
+        } catch (RuntimeException e) {
+            Counter.builder("write_effect_failures_total")
+                    .description("Post-commit side effects of user writes that failed")
+                    .tag("stage", effect.stage())
+                    .register(meterRegistry)
+                    .increment();
+            logger.error("Post-commit {} effect failed: {}", effect.stage(), e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("write_effect_duration")
+                    .description("Time taken by one post-commit side effect of a user write")
+                    .tag("stage", effect.stage())
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.document.UserDocument;
+import com.example.metricsdemo.exception.SearchUnavailableException;
+import com.example.metricsdemo.exception.UserNotFoundException;
+import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ReactiveElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking read path behind ReactiveUserController (reactive profile).
+ *
+ * Reads the same Redis keys with the same codec as UserCacheService and queries the same
+ * Elasticsearch index as ElasticsearchUserSearchService, so MVC and reactive nodes can run side
+ * by side and share one warm cache. Redis and Elasticsearch go through their reactive clients;
+ * PostgreSQL stays on JPA, with each call run on the bounded jdbc-bridge scheduler so a slow
+ * database queues work there instead of blocking event-loop threads.
+ *
+ * There is no near cache and no miss coalescing on this path: each read is one Redis round trip,
+ * and concurrent misses for the same id each load from the database.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveUserService.class);
+
+    private static final Duration CACHE_TTL = Duration.ofHours(UserCacheService.CACHE_TTL_HOURS);
+
+    @Autowired
+    private ReactiveRedisTemplate<String, UserSnapshot> reactiveUserCacheRedisTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private SearchCircuitBreaker searchCircuitBreaker;
+
+    // Absent with the embedded search engine
+    @Autowired
+    private ObjectProvider<ReactiveElasticsearchOperations> reactiveElasticsearchOperations;
+
+    @Autowired
+    private Scheduler jdbcBridgeScheduler;
+
+    @Value("${app.search.engine:elasticsearch}")
+    private String searchEngine;
+
+    @Value("${app.search.source:database}")
+    private String searchSource;
+
+    // Lazy associations resolve inside this, as they do under open-in-view on the MVC stack
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Counter cacheHitCounter;
+    private final Counter cacheMissCounter;
+    private final Counter searchFallbackCounter;
+    private final Timer bridgeQueueWaitTimer;
+    private final Timer bridgeCallTimer;
+    private final AtomicInteger bridgeActive = new AtomicInteger();
+
+    public ReactiveUserService(MeterRegistry meterRegistry, PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        // Same meters as the MVC stack, so dashboards cover both
+        this.cacheHitCounter = Counter.builder("user_cache_hits_total")
+                .description("Total number of user cache hits")
+                .register(meterRegistry);
+
+        this.cacheMissCounter = Counter.builder("user_cache_misses_total")
+                .description("Total number of user cache misses")
+                .register(meterRegistry);
+
+        this.searchFallbackCounter = Counter.builder("search_fallbacks_total")
+                .description("Total number of searches served by PostgreSQL because Elasticsearch was unavailable")
+                .register(meterRegistry);
+
+        this.bridgeQueueWaitTimer = Timer.builder("reactive_jdbc_bridge_queue_wait")
+                .description("Time blocking database calls from the reactive API waited for a bridge thread")
+                .register(meterRegistry);
+
+        this.bridgeCallTimer = Timer.builder("reactive_jdbc_bridge_duration")
+                .description("Time spent in blocking database calls from the reactive API")
+                .register(meterRegistry);
+
+        Gauge.builder("reactive_jdbc_bridge_active", bridgeActive, AtomicInteger::get)
+                .description("Blocking database calls from the reactive API running right now")
+                .register(meterRegistry);
+    }
+
+    public Mono<UserSnapshot> getUserById(Long id) {
+        return reactiveUserCacheRedisTemplate.opsForValue().get(UserCacheService.USER_CACHE_PREFIX + id)
+            .onErrorResume(e -> {
+                // Redis down or an unreadable entry - treat it as a miss
+                logger.warn("Redis read failed for user {}: {}", id, e.getMessage());
+                return Mono.empty();
+            })
+            .doOnNext(snapshot -> cacheHitCounter.increment())
+            .switchIfEmpty(Mono.defer(() -> {
+                cacheMissCounter.increment();
+                return loadSnapshot(id).flatMap(snapshot -> cacheIfAbsent(snapshot).thenReturn(snapshot));
+            }));
+    }
+
+    /**
+     * Resolves a list of users in request order: one MGET against the cache, one query for all
+     * misses, then the misses are written back. Unknown ids are skipped.
+     */
+    public Mono<List<UserSnapshot>> getUsersByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinctIds.isEmpty()) {
+            return Mono.just(List.of());
+        }
+
+        List<String> keys = distinctIds.stream()
+            .map(id -> UserCacheService.USER_CACHE_PREFIX + id)
+            .toList();
+        return reactiveUserCacheRedisTemplate.opsForValue().multiGet(keys)
+            .onErrorResume(e -> {
+                logger.warn("Redis MGET failed for {} users: {}", keys.size(), e.getMessage());
+                return Mono.just(List.of());
+            })
+            .flatMap(cached -> {
+                Map<Long, UserSnapshot> resolved = new HashMap<>();
+                for (int i = 0; i < cached.size(); i++) {
+                    if (cached.get(i) != null) {
+                        resolved.put(distinctIds.get(i), cached.get(i));
+                    }
+                }
+                List<Long> missing = distinctIds.stream()
+                    .filter(id -> !resolved.containsKey(id))
+                    .toList();
+                cacheHitCounter.increment(resolved.size());
+                cacheMissCounter.increment(missing.size());
+                if (missing.isEmpty()) {
+                    return Mono.just(resolved);
+                }
+
+                return bridge(() -> userRepository.findAllWithDetailsByIdIn(missing).stream()
+                        .map(UserSnapshot::from)
+                        .toList())
+                    .flatMap(loaded -> {
+                        loaded.forEach(snapshot -> resolved.put(snapshot.getId(), snapshot));
+                        // Commands on the shared reactive connection are pipelined by Lettuce
+                        return Flux.fromIterable(loaded).flatMap(this::cacheIfAbsent).then(Mono.just(resolved));
+                    });
+            })
+            .map(resolved -> distinctIds.stream()
+                .map(resolved::get)
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    // Offset page sorted by id, from PostgreSQL
+    public Mono<Page<UserSnapshot>> getUsersPaged(int page, int size) {
+        return bridge(() -> userService.getAllUsersPaged(page, size).map(UserSnapshot::from));
+    }
+
+    // Keyset page after the given id (see UserService.getUsersAfter)
+    public Mono<Slice<UserSnapshot>> getUsersAfter(long afterId, int size) {
+        return bridge(() -> userService.getUsersAfter(afterId, size).map(UserSnapshot::from));
+    }
+
+    /**
+     * Fuzzy search with the same query, breaker and fallback as UserService.fuzzySearchUsersAsUsers:
+     * hits come from the reactive Elasticsearch client and are hydrated through the cache (or
+     * served from _source with app.search.source=index); if Elasticsearch is slow or down the
+     * SQL substring search runs on the bridge instead.
+     */
+    public Mono<Page<UserSnapshot>> fuzzySearch(String searchTerm, int page, int size) {
+        ReactiveElasticsearchOperations operations = reactiveElasticsearchOperations.getIfAvailable();
+        if (!"elasticsearch".equals(searchEngine) || operations == null) {
+            // Embedded index: in-process, so the MVC code path is fine on a bridge thread
+            return bridge(() -> userService.fuzzySearchUsersAsUsers(searchTerm, page, size));
+        }
+
+        Pageable pageable = PageRequest.of(page, size);
+        Mono<Page<UserDocument>> hits = operations.searchForHits(fuzzyQuery(searchTerm, pageable), UserDocument.class)
+            .flatMap(searchHits -> searchHits.getSearchHits()
+                .map(SearchHit::getContent)
+                .collectList()
+                .map(documents -> new PageImpl<>(documents, pageable, searchHits.getTotalHits())));
+
+        return searchCircuitBreaker.execute(hits)
+            .flatMap(documents -> {
+                if ("index".equals(searchSource)) {
+                    // Build the response entirely from the enriched documents - zero database load
+                    return Mono.just(documents.map(UserSnapshot::from));
+                }
+                // Hydrate all hits at once, keeping Elasticsearch's relevance order
+                List<Long> hitIds = documents.getContent().stream().map(UserDocument::getId).toList();
+                return getUsersByIds(hitIds).map(users -> toPage(users, pageable, documents.getTotalElements()));
+            })
+            .onErrorResume(SearchUnavailableException.class, e -> {
+                // Degrade to the SQL substring search (no typo tolerance)
+                searchFallbackCounter.increment();
+                logger.warn("Falling back to PostgreSQL search for '{}': {}", searchTerm, e.getMessage());
+                return bridge(() -> userService.searchUsers(searchTerm, page, size).map(User::getId))
+                    .flatMap(ids -> getUsersByIds(ids.getContent())
+                        .map(users -> toPage(users, pageable, ids.getTotalElements())));
+            });
+    }
+
+    private Mono<UserSnapshot> loadSnapshot(Long id) {
+        return bridge(() -> {
+                logger.info("Fetching user {} from PostgreSQL database", id);
+                long start = System.nanoTime();
+                // Load time feeds the MVC nodes' early refresh of entries written here
+                return userRepository.findWithDetailsById(id)
+                    .map(user -> UserSnapshot.from(user)
+                        .withLoadMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)))
+                    .orElse(null);
+            })
+            .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    // SET NX like the MVC read-through fill, so a concurrent write's fresher entry is never overwritten
+    private Mono<Void> cacheIfAbsent(UserSnapshot snapshot) {
+        return reactiveUserCacheRedisTemplate.opsForValue()
+            .setIfAbsent(UserCacheService.USER_CACHE_PREFIX + snapshot.getId(), snapshot, CACHE_TTL)
+            .onErrorResume(e -> {
+                logger.warn("Failed to cache user {}: {}", snapshot.getId(), e.getMessage());
+                return Mono.just(false);
+            })
+            .then();
+    }
+
+    // Same query as UserSearchRepository.fuzzySearch, built with the client's query DSL
+    private static NativeQuery fuzzyQuery(String searchTerm, Pageable pageable) {
+        return NativeQuery.builder()
+            .withQuery(query -> query.multiMatch(match -> match
+                .query(searchTerm)
+                .fields("name^2", "email", "departmentName")
+                .fuzziness("AUTO")))
+            .withPageable(pageable)
+            .build();
+    }
+
+    private static Page<UserSnapshot> toPage(List<UserSnapshot> users, Pageable pageable, long total) {
+        return new PageImpl<>(users, pageable, total);
+    }
+
+    // Runs a blocking JPA call on the bounded bridge scheduler; a null result completes empty
+    private <T> Mono<T> bridge(Supplier<T> call) {
+        return Mono.defer(() -> {
+            long queuedAt = System.nanoTime();
+            return Mono.fromCallable(() -> {
+                    long start = System.nanoTime();
+                    bridgeQueueWaitTimer.record(start - queuedAt, TimeUnit.NANOSECONDS);
+                    bridgeActive.incrementAndGet();
+                    try {
+                        return readOnlyTransaction.execute(status -> call.get());
+                    } finally {
+                        bridgeActive.decrementAndGet();
+                        bridgeCallTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                })
+                .subscribeOn(jdbcBridgeScheduler);
+        });
+    }
+}
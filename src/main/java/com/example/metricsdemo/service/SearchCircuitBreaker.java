@@ -0,0 +1,231 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.exception.SearchUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker with a latency budget for Elasticsearch calls.
+ *
+ * Each call runs on the bounded search executor and is abandoned once it exceeds the
+ * timeout, so a hanging cluster costs a request at most the budget. Failures and timeouts
+ * are tracked over a sliding window of the last calls; when the failure rate crosses the
+ * threshold the breaker opens and calls are rejected immediately for open-duration. After
+ * that a single trial call is let through (half-open): success closes the breaker, failure
+ * opens it again. Each permission carries the generation (state change count) it was granted
+ * in, and outcomes from an earlier generation are ignored, so a slow call admitted while closed
+ * can neither close a half-open breaker nor count against a freshly closed window. Rejections
+ * and failures surface as SearchUnavailableException so callers can fall back.
+ */
+@Component
+public class SearchCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchCircuitBreaker.class);
+
+    private static final long NO_PERMISSION = -1;
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ThreadPoolTaskExecutor searchExecutor;
+    private final Duration timeout;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+
+    // Sliding window of the most recent call outcomes (true = failure)
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    // Bumped on every state change; permissions are tagged with it
+    private long generation;
+
+    private final Counter successCounter;
+    private final Counter failureCounter;
+    private final Counter timeoutCounter;
+    private final Counter rejectedCounter;
+
+    public SearchCircuitBreaker(ThreadPoolTaskExecutor searchExecutor,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.search.breaker.timeout:500ms}") Duration timeout,
+                                @Value("${app.search.breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                                @Value("${app.search.breaker.window-size:20}") int windowSize,
+                                @Value("${app.search.breaker.minimum-calls:10}") int minimumCalls,
+                                @Value("${app.search.breaker.open-duration:30s}") Duration openDuration) {
+        this.searchExecutor = searchExecutor;
+        this.timeout = timeout;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.window = new boolean[windowSize];
+
+        this.successCounter = callCounter(meterRegistry, "success");
+        this.failureCounter = callCounter(meterRegistry, "failure");
+        this.timeoutCounter = callCounter(meterRegistry, "timeout");
+        this.rejectedCounter = callCounter(meterRegistry, "rejected");
+
+        Gauge.builder("search_circuit_breaker_state", this, breaker -> breaker.getState().ordinal())
+                .description("Elasticsearch circuit breaker state (0 = closed, 1 = open, 2 = half-open)")
+                .register(meterRegistry);
+    }
+
+    private static Counter callCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("search_circuit_breaker_calls_total")
+                .description("Elasticsearch calls through the circuit breaker, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        long permission = tryAcquirePermission();
+        if (permission == NO_PERMISSION) {
+            rejectedCounter.increment();
+            throw new SearchUnavailableException("Search circuit breaker is open");
+        }
+
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(call, searchExecutor);
+        } catch (TaskRejectedException e) {
+            // Every search thread is stuck on Elasticsearch - that is a failure too
+            onResult(permission, false);
+            rejectedCounter.increment();
+            throw new SearchUnavailableException("Search executor is saturated", e);
+        }
+
+        try {
+            T result = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            onResult(permission, true);
+            successCounter.increment();
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            onResult(permission, false);
+            timeoutCounter.increment();
+            throw new SearchUnavailableException("Search did not complete within " + timeout.toMillis() + "ms");
+        } catch (ExecutionException e) {
+            onResult(permission, false);
+            failureCounter.increment();
+            throw new SearchUnavailableException("Search failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onResult(permission, false);
+            throw new SearchUnavailableException("Interrupted while waiting for search", e);
+        }
+    }
+
+    // Non-blocking variant for the reactive read API: same state, window and latency budget,
+    // enforced with the call's own timeout instead of a search-executor thread
+    public <T> Mono<T> execute(Mono<T> call) {
+        return Mono.defer(() -> {
+            long permission = tryAcquirePermission();
+            if (permission == NO_PERMISSION) {
+                rejectedCounter.increment();
+                return Mono.error(new SearchUnavailableException("Search circuit breaker is open"));
+            }
+            return call
+                .timeout(timeout)
+                .doOnSuccess(result -> {
+                    onResult(permission, true);
+                    successCounter.increment();
+                })
+                // A cancelled call never reports an outcome - count it as failed so a half-open trial is released
+                .doOnCancel(() -> onResult(permission, false))
+                .onErrorMap(e -> {
+                    onResult(permission, false);
+                    if (e instanceof TimeoutException) {
+                        timeoutCounter.increment();
+                        return new SearchUnavailableException("Search did not complete within " + timeout.toMillis() + "ms");
+                    }
+                    failureCounter.increment();
+                    return new SearchUnavailableException("Search failed: " + e.getMessage(), e);
+                });
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // The generation the call is admitted in, or NO_PERMISSION
+    private synchronized long tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openDurationNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.CLOSED) {
+            return generation;
+        }
+        if (state == State.HALF_OPEN && !trialInFlight) {
+            trialInFlight = true;
+            return generation;
+        }
+        return NO_PERMISSION;
+    }
+
+    private synchronized void onResult(long permission, boolean success) {
+        if (permission != generation) {
+            // Admitted before the last state change - it says nothing about the current state
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            transitionTo(success ? State.CLOSED : State.OPEN);
+            return;
+        }
+
+        if (windowCalls == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowIndex] = !success;
+        if (!success) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+
+        if (windowCalls >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCalls) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        logger.warn("Search circuit breaker {} -> {} ({} failures in last {} calls)",
+            state, next, windowFailures, windowCalls);
+        state = next;
+        generation++;
+        if (next == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCalls = 0;
+            windowFailures = 0;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.model.SearchOutboxEvent;
+import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.repository.SearchOutboxRepository;
+import com.example.metricsdemo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind indexing of users into Elasticsearch.
+ *
+ * User writes only insert a row into the search_outbox table, in the same transaction
+ * as the change itself, so a slow or unavailable Elasticsearch never adds latency to
+ * a write and a change is never lost once it commits. A scheduled dispatcher claims
+ * due rows with FOR UPDATE SKIP LOCKED (safe with several instances), keeps only the
+ * latest operation per user, and sends the batch as _bulk requests. Failed batches are
+ * retried with exponential backoff.
+ */
+@Service
+public class SearchOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchOutboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private SearchOutboxRepository outboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserSearchService userSearchService;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final Counter dispatchedCounter;
+    private final Counter coalescedCounter;
+    private final Counter failureCounter;
+    private final Timer bulkTimer;
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public SearchOutboxService(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${app.search.outbox.batch-size:500}") int batchSize,
+                               @Value("${app.search.outbox.initial-backoff:1s}") Duration initialBackoff,
+                               @Value("${app.search.outbox.max-backoff:5m}") Duration maxBackoff) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.dispatchedCounter = Counter.builder("search_outbox_dispatched_total")
+                .description("Total number of user index/delete operations sent to Elasticsearch")
+                .register(meterRegistry);
+
+        this.coalescedCounter = Counter.builder("search_outbox_coalesced_total")
+                .description("Total number of outbox events superseded by a later event for the same user")
+                .register(meterRegistry);
+
+        this.failureCounter = Counter.builder("search_outbox_failures_total")
+                .description("Total number of outbox batches that failed and were rescheduled")
+                .register(meterRegistry);
+
+        this.bulkTimer = Timer.builder("search_outbox_bulk_duration")
+                .description("Time taken to send one outbox batch to Elasticsearch")
+                .register(meterRegistry);
+
+        Gauge.builder("search_outbox_backlog", backlog, AtomicLong::get)
+                .description("Number of outbox events not yet applied to Elasticsearch")
+                .register(meterRegistry);
+
+        Gauge.builder("search_outbox_lag_seconds", lagMillis, millis -> millis.get() / 1000.0)
+                .description("Age of the oldest outbox event not yet applied to Elasticsearch")
+                .register(meterRegistry);
+    }
+
+    // Must run inside the caller's transaction so the event commits (or rolls back) with the change
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueIndex(Long userId) {
+        outboxRepository.save(new SearchOutboxEvent(userId, SearchOutboxEvent.Operation.INDEX));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueDelete(Long userId) {
+        outboxRepository.save(new SearchOutboxEvent(userId, SearchOutboxEvent.Operation.DELETE));
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        try {
+            Integer claimed;
+            do {
+                // A full batch means there is probably more waiting - keep draining
+                claimed = transactionTemplate.execute(status -> dispatchBatch());
+            } while (claimed != null && claimed == batchSize);
+        } catch (RuntimeException e) {
+            logger.error("Search outbox dispatch failed: {}", e.getMessage());
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    private int dispatchBatch() {
+        List<SearchOutboxEvent> events = outboxRepository.claimDue(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Events are claimed in id order, so the last one seen per user is the one that counts
+        Map<Long, SearchOutboxEvent.Operation> latest = new LinkedHashMap<>();
+        for (SearchOutboxEvent event : events) {
+            latest.put(event.getUserId(), event.getOperation());
+        }
+        coalescedCounter.increment(events.size() - latest.size());
+
+        try {
+            bulkTimer.record(() -> {
+                sendToIndex(latest);
+            });
+            outboxRepository.deleteAllInBatch(events);
+            dispatchedCounter.increment(latest.size());
+            logger.info("Applied {} outbox events ({} users) to Elasticsearch", events.size(), latest.size());
+        } catch (RuntimeException e) {
+            failureCounter.increment();
+            reschedule(events, e);
+        }
+        return events.size();
+    }
+
+    private void sendToIndex(Map<Long, SearchOutboxEvent.Operation> latest) {
+        List<Long> indexIds = idsWithOperation(latest, SearchOutboxEvent.Operation.INDEX);
+        List<Long> deleteIds = new ArrayList<>(idsWithOperation(latest, SearchOutboxEvent.Operation.DELETE));
+
+        if (!indexIds.isEmpty()) {
+            List<User> users = userRepository.findAllWithDetailsByIdIn(indexIds);
+            userSearchService.indexUsers(users);
+
+            // Users deleted after the event was written are removed instead
+            Set<Long> found = users.stream().map(User::getId).collect(Collectors.toSet());
+            indexIds.stream().filter(id -> !found.contains(id)).forEach(deleteIds::add);
+        }
+        if (!deleteIds.isEmpty()) {
+            userSearchService.deleteUsers(deleteIds);
+        }
+    }
+
+    private List<Long> idsWithOperation(Map<Long, SearchOutboxEvent.Operation> latest, SearchOutboxEvent.Operation operation) {
+        return latest.entrySet().stream()
+            .filter(entry -> entry.getValue() == operation)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    // Leaves the events in the outbox and pushes their next attempt out exponentially
+    private void reschedule(List<SearchOutboxEvent> events, RuntimeException e) {
+        String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (SearchOutboxEvent event : events) {
+            int attempts = event.getAttempts() + 1;
+            event.setAttempts(attempts);
+            event.setNextAttemptAt(now.plus(backoff(attempts)));
+            event.setLastError(error);
+        }
+        logger.warn("Failed to apply {} outbox events to Elasticsearch, will retry: {}", events.size(), error);
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void refreshBacklog() {
+        try {
+            backlog.set(outboxRepository.count());
+            LocalDateTime oldest = outboxRepository.findOldestCreatedAt();
+            lagMillis.set(oldest != null ? Math.max(0, Duration.between(oldest, LocalDateTime.now()).toMillis()) : 0);
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh search outbox backlog: {}", e.getMessage());
+        }
+    }
+}
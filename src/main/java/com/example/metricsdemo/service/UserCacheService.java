@@ -1,14 +1,41 @@
 package com.example.metricsdemo.service;
 
-import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.dto.CachePurgeResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -17,45 +44,188 @@ public class UserCacheService {
     private static final Logger logger = LoggerFactory.getLogger(UserCacheService.class);
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, UserSnapshot> userCacheRedisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
 
     private final Counter cacheHitCounter;
     private final Counter cacheMissCounter;
+    private final Counter nearHitCounter;
+    private final Counter nearMissCounter;
+    private final Counter nearEvictionCounter;
+    private final Counter redisHitCounter;
+    private final Counter redisMissCounter;
+    private final Counter invalidationsReceivedCounter;
+    private final Counter purgedKeysCounter;
+
+    // In-process tier in front of Redis. Holds immutable snapshots only,
+    // so entries can be shared safely between request threads.
+    private final Cache<Long, UserSnapshot> nearCache;
+    private final boolean nearCacheEnabled;
+
+    // XFetch tuning - beta > 1 favours earlier refreshes
+    private final double earlyRefreshBeta;
+    private final long earlyRefreshMinDeltaMillis;
 
-    private static final String USER_CACHE_PREFIX = "user:";
-    private static final long CACHE_TTL_HOURS = 24;
+    // Identifies this node so we can ignore our own invalidation broadcasts
+    private final String nodeId = UUID.randomUUID().toString();
 
-    public UserCacheService(MeterRegistry meterRegistry) {
+    // Snapshots live under their own namespace so they never collide with the old entity-graph entries.
+    // Shared with ReactiveUserService, which reads and fills the same keys.
+    static final String USER_CACHE_PREFIX = "user:snapshot:";
+    static final long CACHE_TTL_HOURS = 24;
+    private static final String INVALIDATION_CHANNEL = "user-cache-invalidation";
+    private static final String INVALIDATE_ALL = "*";
+    private static final int PURGE_BATCH_SIZE = 500;
+    // Compare-and-set on the encoded value: replace the entry only if it is still the one given
+    private static final RedisScript<Long> REPLACE_IF_UNCHANGED = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+            + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 end return 0",
+        Long.class);
+
+    public UserCacheService(MeterRegistry meterRegistry,
+                            @Value("${app.cache.near.enabled:true}") boolean nearCacheEnabled,
+                            @Value("${app.cache.near.max-size:10000}") long nearMaxSize,
+                            @Value("${app.cache.near.ttl:30s}") Duration nearTtl,
+                            @Value("${app.cache.early-refresh.beta:1.0}") double earlyRefreshBeta,
+                            @Value("${app.cache.early-refresh.min-delta:50ms}") Duration earlyRefreshMinDelta) {
         this.cacheHitCounter = Counter.builder("user_cache_hits_total")
                 .description("Total number of user cache hits")
                 .register(meterRegistry);
-        
+
         this.cacheMissCounter = Counter.builder("user_cache_misses_total")
                 .description("Total number of user cache misses")
                 .register(meterRegistry);
+
+        this.nearHitCounter = Counter.builder("user_cache_near_hits_total")
+                .description("Total number of user cache hits served from the in-process near cache")
+                .register(meterRegistry);
+
+        this.nearMissCounter = Counter.builder("user_cache_near_misses_total")
+                .description("Total number of near cache misses that fell through to Redis")
+                .register(meterRegistry);
+
+        this.nearEvictionCounter = Counter.builder("user_cache_near_evictions_total")
+                .description("Total number of near cache entries evicted by size or TTL")
+                .register(meterRegistry);
+
+        this.redisHitCounter = Counter.builder("user_cache_redis_hits_total")
+                .description("Total number of user cache hits served from Redis")
+                .register(meterRegistry);
+
+        this.redisMissCounter = Counter.builder("user_cache_redis_misses_total")
+                .description("Total number of user cache misses in Redis")
+                .register(meterRegistry);
+
+        this.invalidationsReceivedCounter = Counter.builder("user_cache_invalidations_received_total")
+                .description("Total number of near cache invalidations received from other nodes")
+                .register(meterRegistry);
+
+        this.purgedKeysCounter = Counter.builder("user_cache_purged_keys_total")
+                .description("Total number of cached users removed by full cache purges")
+                .register(meterRegistry);
+
+        this.nearCacheEnabled = nearCacheEnabled;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+        this.earlyRefreshMinDeltaMillis = earlyRefreshMinDelta.toMillis();
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(nearTtl)
+                .evictionListener((Long key, UserSnapshot value, RemovalCause cause) ->
+                        nearEvictionCounter.increment())
+                .build();
+
+        Gauge.builder("user_cache_near_size", nearCache, Cache::estimatedSize)
+                .description("Approximate number of entries in the near cache")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribeToInvalidations() {
+        listenerContainer.addMessageListener(this::onInvalidationMessage, new ChannelTopic(INVALIDATION_CHANNEL));
+        logger.info("Near cache {} (node {}), listening for invalidations on '{}'",
+            nearCacheEnabled ? "enabled" : "disabled", nodeId, INVALIDATION_CHANNEL);
+    }
+
+    // Read-through path: only fill an empty slot, so a slow database read can never
+    // overwrite a snapshot that a concurrent update has already written
+    public void cacheUserIfAbsent(UserSnapshot snapshot) {
+        try {
+            String key = USER_CACHE_PREFIX + snapshot.getId();
+            Boolean stored = userCacheRedisTemplate.opsForValue()
+                .setIfAbsent(key, snapshot, CACHE_TTL_HOURS, TimeUnit.HOURS);
+            if (Boolean.TRUE.equals(stored)) {
+                logger.info("Successfully cached user {} in Redis with key: {}", snapshot.getId(), key);
+                if (nearCacheEnabled) {
+                    nearCache.put(snapshot.getId(), snapshot);
+                }
+            } else {
+                logger.info("User {} was cached concurrently, keeping the existing entry", snapshot.getId());
+            }
+        } catch (Exception e) {
+            logger.error("Failed to cache user {} in Redis: {}", snapshot.getId(), e.getMessage(), e);
+        }
     }
 
-    public void cacheUser(User user) {
+    // Early-refresh path: the replacement was loaded on another thread, and the user may have been
+    // updated (and evicted) meanwhile. Only swap out the exact entry that triggered the refresh, so
+    // a stale load never lands on an evicted or newer entry.
+    public boolean replaceSnapshotIfUnchanged(UserSnapshot expected, UserSnapshot replacement) {
         try {
-            String key = USER_CACHE_PREFIX + user.getId();
-            redisTemplate.opsForValue().set(key, user, CACHE_TTL_HOURS, TimeUnit.HOURS);
-            logger.info("Successfully cached user {} in Redis with key: {}", user.getId(), key);
+            @SuppressWarnings("unchecked")
+            RedisSerializer<UserSnapshot> serializer =
+                (RedisSerializer<UserSnapshot>) userCacheRedisTemplate.getValueSerializer();
+            String key = USER_CACHE_PREFIX + replacement.getId();
+            byte[] ttlMillis = String.valueOf(TimeUnit.HOURS.toMillis(CACHE_TTL_HOURS)).getBytes(StandardCharsets.UTF_8);
+            Long replaced = userCacheRedisTemplate.execute(REPLACE_IF_UNCHANGED, RedisSerializer.byteArray(), null,
+                List.of(key), serializer.serialize(expected), serializer.serialize(replacement), ttlMillis);
+            if (replaced == null || replaced == 0) {
+                logger.info("User {} changed since the refresh was triggered, keeping the current entry", replacement.getId());
+                return false;
+            }
         } catch (Exception e) {
-            logger.error("Failed to cache user {} in Redis: {}", user.getId(), e.getMessage(), e);
+            logger.error("Failed to refresh user {} in Redis: {}", replacement.getId(), e.getMessage(), e);
+            return false;
+        }
+        // Same as a write: refresh our near copy and tell the other nodes to drop theirs
+        if (nearCacheEnabled) {
+            nearCache.put(replacement.getId(), replacement);
         }
+        publishInvalidation(String.valueOf(replacement.getId()));
+        return true;
     }
 
-    public User getCachedUser(Long userId) {
+    public UserSnapshot getCachedUser(Long userId) {
+        if (nearCacheEnabled) {
+            UserSnapshot nearUser = nearCache.getIfPresent(userId);
+            if (nearUser != null) {
+                logger.debug("Near cache HIT - Serving user {} from local memory", userId);
+                nearHitCounter.increment();
+                cacheHitCounter.increment();
+                return nearUser;
+            }
+            nearMissCounter.increment();
+        }
+
         try {
             String key = USER_CACHE_PREFIX + userId;
-            User cachedUser = (User) redisTemplate.opsForValue().get(key);
-            
+            UserSnapshot cachedUser = userCacheRedisTemplate.opsForValue().get(key);
+
             if (cachedUser != null) {
                 logger.info("Cache HIT - Fetching user {} from Redis", userId);
+                redisHitCounter.increment();
                 cacheHitCounter.increment();
+                if (nearCacheEnabled) {
+                    nearCache.put(userId, cachedUser);
+                }
                 return cachedUser;
             } else {
                 logger.info("Cache MISS - User {} not found in Redis", userId);
+                redisMissCounter.increment();
                 cacheMissCounter.increment();
                 return null;
             }
@@ -66,12 +236,197 @@ public class UserCacheService {
         }
     }
 
+    /**
+     * Resolves many users at once: near cache first, then a single MGET for the rest.
+     * Ids that are not cached anywhere are simply absent from the returned map.
+     */
+    public Map<Long, UserSnapshot> getCachedUsers(Collection<Long> userIds) {
+        Map<Long, UserSnapshot> found = new HashMap<>();
+        List<Long> remaining = new ArrayList<>();
+
+        for (Long userId : userIds) {
+            UserSnapshot nearUser = nearCacheEnabled ? nearCache.getIfPresent(userId) : null;
+            if (nearUser != null) {
+                nearHitCounter.increment();
+                cacheHitCounter.increment();
+                found.put(userId, nearUser);
+            } else {
+                if (nearCacheEnabled) {
+                    nearMissCounter.increment();
+                }
+                remaining.add(userId);
+            }
+        }
+        if (remaining.isEmpty()) {
+            return found;
+        }
+
+        try {
+            List<String> keys = remaining.stream().map(id -> USER_CACHE_PREFIX + id).toList();
+            List<UserSnapshot> values = userCacheRedisTemplate.opsForValue().multiGet(keys);
+
+            for (int i = 0; i < remaining.size(); i++) {
+                UserSnapshot cachedUser = values != null ? values.get(i) : null;
+                if (cachedUser != null) {
+                    redisHitCounter.increment();
+                    cacheHitCounter.increment();
+                    if (nearCacheEnabled) {
+                        nearCache.put(cachedUser.getId(), cachedUser);
+                    }
+                    found.put(remaining.get(i), cachedUser);
+                } else {
+                    redisMissCounter.increment();
+                    cacheMissCounter.increment();
+                }
+            }
+            logger.info("Batch cache lookup - {} of {} users found in Redis", found.size(), userIds.size());
+        } catch (Exception e) {
+            logger.error("Error getting {} users from Redis cache: {}", remaining.size(), e.getMessage(), e);
+            cacheMissCounter.increment(remaining.size());
+        }
+        return found;
+    }
+
+    // Bulk read-through fill: one pipeline of SET NX commands, same semantics as cacheUserIfAbsent
+    public void cacheUsersIfAbsent(List<UserSnapshot> snapshots) {
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        try {
+            List<Object> results = userCacheRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, UserSnapshot> ops = (RedisOperations<String, UserSnapshot>) operations;
+                    for (UserSnapshot snapshot : snapshots) {
+                        ops.opsForValue().setIfAbsent(USER_CACHE_PREFIX + snapshot.getId(), snapshot,
+                            CACHE_TTL_HOURS, TimeUnit.HOURS);
+                    }
+                    return null;
+                }
+            });
+
+            for (int i = 0; i < snapshots.size() && i < results.size(); i++) {
+                if (nearCacheEnabled && Boolean.TRUE.equals(results.get(i))) {
+                    nearCache.put(snapshots.get(i).getId(), snapshots.get(i));
+                }
+            }
+            logger.info("Cached {} users in Redis in one pipeline", snapshots.size());
+        } catch (Exception e) {
+            logger.error("Failed to cache {} users in Redis: {}", snapshots.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Probabilistic early expiration (XFetch): the closer an entry is to its TTL, and the
+     * more expensive it was to load, the more likely a reader is asked to refresh it.
+     * Hot keys are therefore reloaded by one request shortly before they expire instead of
+     * by a burst of requests right after.
+     */
+    public boolean shouldRefreshEarly(UserSnapshot snapshot) {
+        if (snapshot.getCachedAt() <= 0) {
+            return false;
+        }
+        long expiresAt = snapshot.getCachedAt() + TimeUnit.HOURS.toMillis(CACHE_TTL_HOURS);
+        double delta = Math.max(snapshot.getLoadMillis(), earlyRefreshMinDeltaMillis);
+        double gap = -delta * earlyRefreshBeta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return System.currentTimeMillis() + gap >= expiresAt;
+    }
+
     public void evictUser(Long userId) {
         String key = USER_CACHE_PREFIX + userId;
-        redisTemplate.delete(key);
+        userCacheRedisTemplate.delete(key);
+        nearCache.invalidate(userId);
+        publishInvalidation(String.valueOf(userId));
+    }
+
+    /**
+     * Removes every cached user without blocking Redis: the keyspace is walked with SCAN
+     * cursors and keys are dropped in UNLINK batches (memory is reclaimed off the main
+     * Redis thread). Never holds more than one batch of keys in heap.
+     */
+    public CachePurgeResult evictAllUsers() {
+        long start = System.nanoTime();
+        long scanned = 0;
+        long deleted = 0;
+        int batches = 0;
+
+        // Clear locally first so no node serves a purged user from memory
+        nearCache.invalidateAll();
+        publishInvalidation(INVALIDATE_ALL);
+
+        ScanOptions options = ScanOptions.scanOptions()
+            .match(USER_CACHE_PREFIX + "*")
+            .count(PURGE_BATCH_SIZE)
+            .build();
+
+        List<String> batch = new ArrayList<>(PURGE_BATCH_SIZE);
+        try (Cursor<String> cursor = userCacheRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                scanned++;
+                if (batch.size() >= PURGE_BATCH_SIZE) {
+                    deleted += unlinkBatch(batch);
+                    batches++;
+                    batch.clear();
+                    logger.info("Cache purge progress: {} keys scanned, {} deleted in {} batches",
+                        scanned, deleted, batches);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            deleted += unlinkBatch(batch);
+            batches++;
+        }
+
+        // Again once the last key is gone: while the purge was walking the keyspace, any node
+        // (this one included) may have refilled its near cache from keys not yet unlinked
+        nearCache.invalidateAll();
+        publishInvalidation(INVALIDATE_ALL);
+
+        long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Cache purge complete: {} keys scanned, {} deleted in {} batches ({} ms)",
+            scanned, deleted, batches, durationMs);
+        return new CachePurgeResult(scanned, deleted, batches, durationMs);
+    }
+
+    private long unlinkBatch(List<String> keys) {
+        Long unlinked = userCacheRedisTemplate.unlink(keys);
+        long count = unlinked != null ? unlinked : 0;
+        purgedKeysCounter.increment(count);
+        return count;
     }
 
-    public void evictAllUsers() {
-        redisTemplate.delete(redisTemplate.keys(USER_CACHE_PREFIX + "*"));
+    // Message format: "<nodeId>|<userId>" or "<nodeId>|*"
+    private void publishInvalidation(String target) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + target);
+        } catch (Exception e) {
+            // Other nodes fall back to the near cache TTL if the broadcast is lost
+            logger.warn("Failed to publish cache invalidation for {}: {}", target, e.getMessage());
+        }
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+
+        String target = body.substring(separator + 1);
+        invalidationsReceivedCounter.increment();
+        if (INVALIDATE_ALL.equals(target)) {
+            nearCache.invalidateAll();
+            logger.info("Near cache cleared by invalidation from another node");
+            return;
+        }
+
+        try {
+            nearCache.invalidate(Long.valueOf(target));
+            logger.debug("Near cache entry for user {} invalidated by another node", target);
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed cache invalidation message: {}", body);
+        }
     }
-}
\ No newline at end of file
+}
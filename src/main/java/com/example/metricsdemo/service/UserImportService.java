@@ -0,0 +1,486 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.dto.CreateUserRequest;
+import com.example.metricsdemo.dto.ImportResult;
+import com.example.metricsdemo.exception.PasswordHashingBusyException;
+import com.example.metricsdemo.model.Department;
+import com.example.metricsdemo.model.Role;
+import com.example.metricsdemo.model.SearchOutboxEvent;
+import com.example.metricsdemo.repository.DepartmentRepository;
+import com.example.metricsdemo.repository.RoleRepository;
+import com.example.metricsdemo.security.BoundedPasswordEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk user import from a streamed NDJSON or CSV upload.
+ *
+ * The upload is read line by line and processed in chunks, so memory is bounded by the chunk
+ * size rather than the file. Per chunk: validation and duplicate checks with one query per
+ * unique column, BCrypt hashing in parallel on the password-hash pool, ids reserved in blocks
+ * from the pooled sequences (one nextval per 50 ids), then one transaction with a JDBC batch
+ * per table (users, user_credentials, user_roles, search_outbox). After commit the chunk is
+ * written to the cache in one pipeline; the outbox dispatcher indexes it with one _bulk request.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+$");
+    private static final String DEFAULT_ROLE = "ROLE_USER";
+    private static final List<String> CSV_COLUMNS = List.of("username", "password", "name", "email", "departmentId", "roles");
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    record ImportRecord(int line, CreateUserRequest request) {
+    }
+
+    private record IdSequence(String name, long increment) {
+    }
+
+    // Table -> sequence, as declared in the entities' @SequenceGenerator
+    private static final Map<String, String> SEQUENCE_NAMES = Map.of(
+        "users", "users_id_seq",
+        "user_credentials", "user_credentials_id_seq",
+        "user_roles", "user_roles_id_seq");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserCacheService userCacheService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.users.import.chunk-size:500}")
+    private int chunkSize;
+
+    private final TransactionTemplate transactionTemplate;
+    // Table -> sequence and its increment, looked up once
+    private final Map<String, IdSequence> sequences = new ConcurrentHashMap<>();
+
+    private final Counter importedCounter;
+    private final Timer chunkTimer;
+
+    public UserImportService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        this.importedCounter = Counter.builder("users_imported_total")
+                .description("Total number of users created by bulk imports")
+                .register(meterRegistry);
+
+        this.chunkTimer = Timer.builder("user_import_chunk_duration")
+                .description("Time taken to import one chunk of users")
+                .register(meterRegistry);
+    }
+
+    public ImportResult importUsers(InputStream input, Format format) throws IOException {
+        long start = System.nanoTime();
+        ImportResult result = new ImportResult();
+
+        Map<Long, String> departments = departmentRepository.findAll().stream()
+            .collect(Collectors.toMap(Department::getId, Department::getName));
+        Map<String, Long> roles = roleRepository.findAll().stream()
+            .collect(Collectors.toMap(Role::getName, Role::getId));
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<ImportRecord> chunk = new ArrayList<>(chunkSize);
+            Map<String, Integer> csvColumns = format == Format.CSV ? readCsvHeader(reader) : null;
+            int lineNumber = format == Format.CSV ? 1 : 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                result.setReceived(result.getReceived() + 1);
+                try {
+                    CreateUserRequest request = format == Format.CSV ? parseCsv(line, csvColumns) : parseNdjson(line);
+                    chunk.add(new ImportRecord(lineNumber, request));
+                } catch (IllegalArgumentException e) {
+                    reject(result, lineNumber, e.getMessage());
+                }
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, departments, roles, result);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, departments, roles, result);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        result.setDurationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        result.setUsersPerSecond(elapsedNanos > 0 ? result.getImported() / (elapsedNanos / 1e9) : 0);
+        logger.info("Imported {} of {} users ({} skipped, {} failed) in {}ms - {} users/s",
+            result.getImported(), result.getReceived(), result.getSkipped(), result.getFailed(),
+            result.getDurationMs(), Math.round(result.getUsersPerSecond()));
+        return result;
+    }
+
+    private void importChunk(List<ImportRecord> chunk, Map<Long, String> departments,
+                             Map<String, Long> roles, ImportResult result) {
+        result.setChunks(result.getChunks() + 1);
+        chunkTimer.record(() -> {
+            List<ImportRecord> valid = validateChunk(chunk, departments, roles, result);
+            if (valid.isEmpty()) {
+                return;
+            }
+            try {
+                writeChunk(valid, departments, roles);
+                result.setImported(result.getImported() + valid.size());
+                importedCounter.increment(valid.size());
+            } catch (DataAccessException e) {
+                // Most likely a concurrent insert of the same username/email - the whole chunk rolled back
+                result.setFailed(result.getFailed() + valid.size());
+                addError(result, "lines " + valid.get(0).line() + "-" + valid.get(valid.size() - 1).line()
+                    + ": chunk failed: " + e.getMostSpecificCause().getMessage());
+                logger.warn("Import chunk failed: {}", e.getMostSpecificCause().getMessage());
+            } catch (PasswordHashingBusyException e) {
+                result.setFailed(result.getFailed() + valid.size());
+                addError(result, "lines " + valid.get(0).line() + "-" + valid.get(valid.size() - 1).line()
+                    + ": chunk failed: " + e.getMessage());
+                logger.warn("Import chunk failed: {}", e.getMessage());
+            }
+        });
+    }
+
+    List<ImportRecord> validateChunk(List<ImportRecord> chunk, Map<Long, String> departments,
+                                             Map<String, Long> roles, ImportResult result) {
+        List<ImportRecord> valid = new ArrayList<>(chunk.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (ImportRecord record : chunk) {
+            CreateUserRequest request = record.request();
+            String invalid = validate(request);
+            if (invalid != null) {
+                reject(result, record.line(), invalid);
+            } else if (!departments.containsKey(request.getDepartmentId())) {
+                reject(result, record.line(), "Department not found with id: " + request.getDepartmentId());
+            } else if (request.getRoles() != null && !roles.keySet().containsAll(request.getRoles())) {
+                reject(result, record.line(), "Unknown role in " + request.getRoles());
+            } else if (!usernames.add(request.getUsername()) || !emails.add(request.getEmail())) {
+                skip(result, record.line(), "duplicate username or email in upload");
+            } else {
+                valid.add(record);
+            }
+        }
+        if (valid.isEmpty()) {
+            return valid;
+        }
+
+        // One query per unique column for the whole chunk
+        Set<String> existingUsernames = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+            "SELECT username FROM userschema.user_credentials WHERE username IN (:values)",
+            new MapSqlParameterSource("values", usernames), String.class));
+        Set<String> existingEmails = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+            "SELECT email FROM userschema.users WHERE email IN (:values)",
+            new MapSqlParameterSource("values", emails), String.class));
+        if (existingUsernames.isEmpty() && existingEmails.isEmpty()) {
+            return valid;
+        }
+
+        List<ImportRecord> fresh = new ArrayList<>(valid.size());
+        for (ImportRecord record : valid) {
+            if (existingUsernames.contains(record.request().getUsername())
+                    || existingEmails.contains(record.request().getEmail())) {
+                skip(result, record.line(), "username or email already exists");
+            } else {
+                fresh.add(record);
+            }
+        }
+        return fresh;
+    }
+
+    private void writeChunk(List<ImportRecord> records, Map<Long, String> departments, Map<String, Long> roles) {
+        List<String> hashes = hashPasswords(records);
+
+        List<Set<String>> roleNames = records.stream()
+            .map(record -> record.request().getRoles() == null || record.request().getRoles().isEmpty()
+                ? Set.of(DEFAULT_ROLE)
+                : new LinkedHashSet<>(record.request().getRoles()))
+            .toList();
+        int roleCount = roleNames.stream().mapToInt(Set::size).sum();
+
+        List<Long> userIds = allocateIds("users", records.size());
+        List<Long> credentialIds = allocateIds("user_credentials", records.size());
+        List<Long> userRoleIds = allocateIds("user_roles", roleCount);
+
+        List<Object[]> userRows = new ArrayList<>(records.size());
+        List<Object[]> credentialRows = new ArrayList<>(records.size());
+        List<Object[]> userRoleRows = new ArrayList<>(roleCount);
+        List<Object[]> outboxRows = new ArrayList<>(records.size());
+        List<UserSnapshot> snapshots = new ArrayList<>(records.size());
+        int roleIndex = 0;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < records.size(); i++) {
+            CreateUserRequest request = records.get(i).request();
+            Long userId = userIds.get(i);
+            userRows.add(new Object[] {userId, request.getName(), request.getEmail(), request.getDepartmentId()});
+            credentialRows.add(new Object[] {credentialIds.get(i), userId, request.getUsername(), hashes.get(i)});
+            for (String roleName : roleNames.get(i)) {
+                userRoleRows.add(new Object[] {userRoleIds.get(roleIndex++), userId, roles.get(roleName)});
+            }
+            outboxRows.add(new Object[] {userId, SearchOutboxEvent.Operation.INDEX.name()});
+            snapshots.add(new UserSnapshot(userId, request.getUsername(), request.getName(), request.getEmail(),
+                request.getDepartmentId(), departments.get(request.getDepartmentId()), roleNames.get(i), now, 0));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO userschema.users (id, name, email, department_id) VALUES (?, ?, ?, ?)", userRows);
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO userschema.user_credentials (id, user_id, username, password) VALUES (?, ?, ?, ?)", credentialRows);
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO userschema.user_roles (id, user_id, role_id) VALUES (?, ?, ?)", userRoleRows);
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO userschema.search_outbox (user_id, operation) VALUES (?, ?)", outboxRows);
+            userService.adjustUserCountAfterCommit(records.size());
+        });
+
+        // Warm the cache for the new users in one pipeline
+        userCacheService.cacheUsersIfAbsent(snapshots);
+    }
+
+    // BCrypt dominates the cost of a create, so the chunk is hashed in parallel - in windows of
+    // one task per hashing thread, so an import never fills the queue that logins share
+    private List<String> hashPasswords(List<ImportRecord> records) {
+        List<String> hashes = new ArrayList<>(records.size());
+        int window = passwordEncoder.getParallelism();
+        for (int from = 0; from < records.size(); from += window) {
+            List<CompletableFuture<String>> pending = records.subList(from, Math.min(from + window, records.size())).stream()
+                .map(record -> passwordEncoder.encodeAsync(record.request().getPassword()))
+                .toList();
+            for (CompletableFuture<String> hash : pending) {
+                hashes.add(hash.join());
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Reserves count ids from a table's pooled sequence. Each nextval returns the top of a
+     * block of increment ids, exactly as Hibernate's pooled optimizer reads it, so ids
+     * reserved here never collide with ids Hibernate hands out.
+     */
+    List<Long> allocateIds(String table, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        if (count == 0) {
+            return ids;
+        }
+        IdSequence sequence = sequences.computeIfAbsent(table, this::lookUpSequence);
+        long increment = sequence.increment();
+
+        while (ids.size() < count) {
+            long blocks = (count - ids.size() + increment - 1) / increment;
+            List<Long> tops = jdbcTemplate.queryForList(
+                "SELECT nextval(?::regclass) FROM generate_series(1, ?)", Long.class, "userschema." + sequence.name(), blocks);
+            for (Long top : tops) {
+                // A block reaching below 1 is the sequence's very first value - skip it
+                if (top - increment + 1 < 1) {
+                    continue;
+                }
+                for (long id = top - increment + 1; id <= top && ids.size() < count; id++) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // The sequences are Hibernate's, not the columns' own: with ddl-auto the id columns have no
+    // default, so pg_get_serial_sequence would find nothing on a fresh schema
+    private IdSequence lookUpSequence(String table) {
+        String sequenceName = SEQUENCE_NAMES.get(table);
+        Long increment = jdbcTemplate.queryForObject(
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = 'userschema' AND sequencename = ?", Long.class,
+            sequenceName);
+        return new IdSequence(sequenceName, increment);
+    }
+
+    // Same rules as the constraints on CreateUserRequest
+    private static String validate(CreateUserRequest request) {
+        if (isBlank(request.getUsername())) {
+            return "Username is required";
+        }
+        if (isBlank(request.getPassword())) {
+            return "Password is required";
+        }
+        if (isBlank(request.getName())) {
+            return "Name is required";
+        }
+        if (isBlank(request.getEmail())) {
+            return "Email is required";
+        }
+        if (!EMAIL.matcher(request.getEmail()).matches()) {
+            return "Email should be valid";
+        }
+        if (request.getDepartmentId() == null) {
+            return "Department ID is required";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private CreateUserRequest parseNdjson(String line) {
+        try {
+            return objectMapper.readValue(line, CreateUserRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    static Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV upload is empty - expected a header row " + CSV_COLUMNS);
+        }
+        List<String> columns = splitCsv(header);
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            positions.put(columns.get(i).trim(), i);
+        }
+        if (!positions.keySet().containsAll(CSV_COLUMNS.subList(0, 5))) {
+            throw new IllegalArgumentException("CSV header must contain " + CSV_COLUMNS + " (roles optional)");
+        }
+        return positions;
+    }
+
+    private CreateUserRequest parseCsv(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(csvValue(values, columns, "username"));
+        request.setPassword(csvValue(values, columns, "password"));
+        request.setName(csvValue(values, columns, "name"));
+        request.setEmail(csvValue(values, columns, "email"));
+        String departmentId = csvValue(values, columns, "departmentId");
+        try {
+            request.setDepartmentId(departmentId != null ? Long.valueOf(departmentId) : null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid departmentId: " + departmentId);
+        }
+        String roleList = csvValue(values, columns, "roles");
+        if (roleList != null) {
+            // Several roles are separated by ';' inside the one column
+            request.setRoles(Arrays.stream(roleList.split(";"))
+                .map(String::trim)
+                .filter(role -> !role.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        }
+        return request;
+    }
+
+    private static String csvValue(List<String> values, Map<String, Integer> columns, String column) {
+        Integer position = columns.get(column);
+        if (position == null || position >= values.size()) {
+            return null;
+        }
+        String value = values.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on a single line: commas inside quotes, "" as an escaped quote
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void reject(ImportResult result, int line, String reason) {
+        result.setFailed(result.getFailed() + 1);
+        addError(result, "line " + line + ": " + reason);
+    }
+
+    private void skip(ImportResult result, int line, String reason) {
+        result.setSkipped(result.getSkipped() + 1);
+        addError(result, "line " + line + ": skipped, " + reason);
+    }
+
+    private void addError(ImportResult result, String error) {
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(error);
+        }
+    }
+}
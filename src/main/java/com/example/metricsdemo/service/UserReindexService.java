@@ -0,0 +1,412 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.document.UserDocument;
+import com.example.metricsdemo.dto.ReindexJobStatus;
+import com.example.metricsdemo.exception.ReindexJobNotFoundException;
+import com.example.metricsdemo.model.User;
+import com.example.metricsdemo.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rebuilds the search index without loading the user table into memory.
+ *
+ * Users are streamed from PostgreSQL in keyset-paginated chunks and sent as _bulk
+ * requests, several in flight at once, into a fresh timestamped index. When the last
+ * chunk is acknowledged the "users" alias is swapped to the new index in one atomic
+ * _aliases call, so searches never see a half-built index. A failed job can be resumed
+ * from its last committed id into the same target index.
+ */
+@Service
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+public class UserReindexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserReindexService.class);
+
+    private static final String ALIAS = "users";
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ElasticsearchUserSearchService userSearchService;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Autowired
+    private ThreadPoolTaskExecutor reindexJobExecutor;
+
+    @Autowired
+    private ThreadPoolTaskExecutor reindexBulkExecutor;
+
+    @Value("${app.search.reindex.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.search.reindex.max-in-flight:4}")
+    private int maxInFlight;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private volatile Job activeJob;
+    // Job whose target index receives the mirrored live writes: the running job, or a failed
+    // one until it is resumed to completion or replaced by a new job
+    private volatile Job shadowJob;
+    // Not synchronized: starting a job makes Elasticsearch calls, and a virtual thread
+    // blocking inside a monitor would pin its carrier thread
+    private final ReentrantLock jobLock = new ReentrantLock();
+
+    private final Counter documentsIndexedCounter;
+    private final Timer bulkTimer;
+    private final AtomicInteger inFlightBulks = new AtomicInteger();
+
+    public UserReindexService(MeterRegistry meterRegistry) {
+        this.documentsIndexedCounter = Counter.builder("user_reindex_documents_total")
+                .description("Total number of user documents written by reindex jobs")
+                .register(meterRegistry);
+
+        this.bulkTimer = Timer.builder("user_reindex_bulk_duration")
+                .description("Time taken per _bulk request during reindexing")
+                .register(meterRegistry);
+
+        Gauge.builder("user_reindex_inflight_bulks", inFlightBulks, AtomicInteger::get)
+                .description("Number of _bulk requests currently in flight")
+                .register(meterRegistry);
+
+        Gauge.builder("user_reindex_docs_per_second", this, UserReindexService::currentThroughput)
+                .description("Throughput of the running reindex job")
+                .register(meterRegistry);
+    }
+
+    public ReindexJobStatus startReindex() {
+        jobLock.lock();
+        try {
+            ensureNoActiveJob();
+            abandonFailedJob();
+
+            String targetIndex = ALIAS + "-" + LocalDateTime.now().format(INDEX_SUFFIX);
+            createTargetIndex(targetIndex);
+
+            Job job = new Job(UUID.randomUUID().toString(), targetIndex);
+            shadowJob = job;
+            userSearchService.setShadowIndex(job.targetIndex);
+            try {
+                launch(job);
+            } catch (RuntimeException e) {
+                // Nothing was streamed yet - drop the job and its empty index instead of leaving them behind
+                userSearchService.setShadowIndex(null);
+                shadowJob = null;
+                elasticsearchOperations.indexOps(IndexCoordinates.of(targetIndex)).delete();
+                throw e;
+            }
+            jobs.put(job.id, job);
+            return job.toStatus();
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    public ReindexJobStatus resumeReindex(String jobId) {
+        jobLock.lock();
+        try {
+            Job job = findJob(jobId);
+            if (!"FAILED".equals(job.state)) {
+                throw new IllegalArgumentException("Only failed reindex jobs can be resumed (job is " + job.state + ")");
+            }
+            ensureNoActiveJob();
+
+            logger.info("Resuming reindex job {} from user id {}", jobId, job.lastCommittedId.get());
+            String error = job.error;
+            LocalDateTime finishedAt = job.finishedAt;
+            job.error = null;
+            job.finishedAt = null;
+            try {
+                launch(job);
+            } catch (RuntimeException e) {
+                job.state = "FAILED";
+                job.error = error;
+                job.finishedAt = finishedAt;
+                throw e;
+            }
+            return job.toStatus();
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    public ReindexJobStatus getStatus(String jobId) {
+        return findJob(jobId).toStatus();
+    }
+
+    private void launch(Job job) {
+        job.state = "RUNNING";
+        job.startNanos = System.nanoTime();
+        job.indexedThisRun.set(0);
+        activeJob = job;
+        try {
+            reindexJobExecutor.execute(() -> run(job));
+        } catch (RuntimeException e) {
+            activeJob = null;
+            throw e;
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            streamIntoIndex(job);
+            swapAlias(job.targetIndex);
+            job.state = "COMPLETED";
+            logger.info("Reindex job {} completed: {} documents into {}", job.id, job.documentsIndexed.get(), job.targetIndex);
+        } catch (Exception e) {
+            job.state = "FAILED";
+            job.error = e.getMessage();
+            logger.error("Reindex job {} failed after user id {}: {}", job.id, job.lastCommittedId.get(), e.getMessage(), e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            // A failed job keeps receiving live writes, so resuming it from its checkpoint
+            // does not miss the changes made while it was down
+            if ("COMPLETED".equals(job.state)) {
+                userSearchService.setShadowIndex(null);
+                shadowJob = null;
+            }
+            activeJob = null;
+        }
+    }
+
+    private void streamIntoIndex(Job job) throws Exception {
+        IndexCoordinates target = IndexCoordinates.of(job.targetIndex);
+        Semaphore permits = new Semaphore(maxInFlight);
+        // Submitted chunks in id order, so the checkpoint only advances past fully acknowledged chunks
+        Deque<PendingChunk> pending = new ArrayDeque<>();
+
+        long afterId = job.lastCommittedId.get();
+        while (true) {
+            List<Long> ids = userRepository.findIdsAfter(afterId, PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            List<IndexQuery> queries = userRepository.findAllWithDetailsByIdIn(ids).stream()
+                .sorted(Comparator.comparing(User::getId))
+                .map(user -> createOnly(userSearchService.toIndexQuery(userSearchService.toDocument(UserSnapshot.from(user)))))
+                .toList();
+
+            permits.acquire();
+            inFlightBulks.incrementAndGet();
+            CompletableFuture<Void> bulk = CompletableFuture.runAsync(() -> {
+                try {
+                    int created = bulkTimer.record(() -> bulkCreate(queries, target));
+                    documentsIndexedCounter.increment(created);
+                    job.documentsIndexed.addAndGet(created);
+                    job.indexedThisRun.addAndGet(created);
+                } finally {
+                    inFlightBulks.decrementAndGet();
+                    permits.release();
+                }
+            }, reindexBulkExecutor);
+
+            afterId = ids.get(ids.size() - 1);
+            pending.addLast(new PendingChunk(bulk, afterId));
+            advanceCheckpoint(job, pending, false);
+        }
+
+        advanceCheckpoint(job, pending, true);
+
+        // A chunk read before a user was deleted can still have created its document after the
+        // dispatcher deleted it from this index - delete those users again now every chunk is in
+        for (Long userId : userSearchService.drainShadowDeletes()) {
+            elasticsearchOperations.delete(String.valueOf(userId), target);
+        }
+    }
+
+    // Chunk writes only create documents, so a newer copy the outbox dispatcher already
+    // mirrored into the target index is never overwritten by the snapshot read here
+    private static IndexQuery createOnly(IndexQuery query) {
+        query.setOpType(IndexQuery.OpType.CREATE);
+        return query;
+    }
+
+    // Returns the number of documents created. Version conflicts are documents the dispatcher
+    // wrote first; any other failure fails the chunk.
+    private int bulkCreate(List<IndexQuery> queries, IndexCoordinates target) {
+        try {
+            elasticsearchOperations.bulkIndex(queries, target);
+            return queries.size();
+        } catch (BulkFailureException e) {
+            Map<String, BulkFailureException.FailureDetails> failures = e.getFailedDocuments();
+            boolean onlyConflicts = failures.values().stream()
+                .allMatch(failure -> failure.status() != null && failure.status() == HttpStatus.CONFLICT.value());
+            if (!onlyConflicts) {
+                throw e;
+            }
+            return queries.size() - failures.size();
+        }
+    }
+
+    // Moves the resume point past every leading chunk that has been acknowledged.
+    // Any failed bulk surfaces here and fails the job.
+    private void advanceCheckpoint(Job job, Deque<PendingChunk> pending, boolean waitForAll) {
+        while (!pending.isEmpty()) {
+            PendingChunk head = pending.peekFirst();
+            if (!waitForAll && !head.bulk.isDone()) {
+                return;
+            }
+            head.bulk.join();
+            job.lastCommittedId.set(head.lastId);
+            pending.removeFirst();
+        }
+    }
+
+    private void createTargetIndex(String targetIndex) {
+        IndexOperations indexOps = elasticsearchOperations.indexOps(IndexCoordinates.of(targetIndex));
+        indexOps.create();
+        indexOps.putMapping(elasticsearchOperations.indexOps(UserDocument.class).createMapping(UserDocument.class));
+        logger.info("Created target index {}", targetIndex);
+    }
+
+    private void swapAlias(String targetIndex) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(ALIAS));
+        Set<String> previousIndices = currentAliasTargets(aliasOps);
+
+        AliasActions actions = new AliasActions();
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+            .withIndices(targetIndex)
+            .withAliases(ALIAS)
+            .build()));
+
+        if (previousIndices.isEmpty() && aliasOps.exists()) {
+            // First run: "users" is still a concrete index - drop it in the same atomic call
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                .withIndices(ALIAS)
+                .build()));
+        } else if (!previousIndices.isEmpty()) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                .withIndices(previousIndices.toArray(new String[0]))
+                .withAliases(ALIAS)
+                .build()));
+        }
+
+        aliasOps.alias(actions);
+        logger.info("Alias '{}' now points to {} (was {})", ALIAS, targetIndex, previousIndices);
+
+        for (String previous : previousIndices) {
+            if (!previous.equals(targetIndex)) {
+                elasticsearchOperations.indexOps(IndexCoordinates.of(previous)).delete();
+                logger.info("Deleted previous index {}", previous);
+            }
+        }
+    }
+
+    private Set<String> currentAliasTargets(IndexOperations aliasOps) {
+        try {
+            Map<String, Set<AliasData>> aliases = aliasOps.getAliases(ALIAS);
+            return aliases.keySet();
+        } catch (Exception e) {
+            // No alias with that name yet
+            return Set.of();
+        }
+    }
+
+    private void ensureNoActiveJob() {
+        Job running = activeJob;
+        if (running != null) {
+            throw new IllegalArgumentException("Reindex job " + running.id + " is already running");
+        }
+    }
+
+    // A new job takes over the shadow index, so the failed job it replaces could no longer be
+    // resumed without missing live writes - drop it and its partial index
+    private void abandonFailedJob() {
+        Job failed = shadowJob;
+        if (failed == null) {
+            return;
+        }
+        userSearchService.setShadowIndex(null);
+        shadowJob = null;
+        failed.state = "ABANDONED";
+        elasticsearchOperations.indexOps(IndexCoordinates.of(failed.targetIndex)).delete();
+        logger.info("Abandoned failed reindex job {} and deleted index {}", failed.id, failed.targetIndex);
+    }
+
+    private Job findJob(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ReindexJobNotFoundException(jobId);
+        }
+        return job;
+    }
+
+    private double currentThroughput() {
+        Job job = activeJob;
+        return job != null ? job.throughput() : 0.0;
+    }
+
+    private record PendingChunk(CompletableFuture<Void> bulk, long lastId) {
+    }
+
+    private static class Job {
+        private final String id;
+        private final String targetIndex;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicLong documentsIndexed = new AtomicLong();
+        private final AtomicLong indexedThisRun = new AtomicLong();
+        private final AtomicLong lastCommittedId = new AtomicLong(0);
+        private volatile String state;
+        private volatile String error;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startNanos;
+
+        Job(String id, String targetIndex) {
+            this.id = id;
+            this.targetIndex = targetIndex;
+        }
+
+        double throughput() {
+            double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            return seconds > 0 ? indexedThisRun.get() / seconds : 0.0;
+        }
+
+        ReindexJobStatus toStatus() {
+            return new ReindexJobStatus(id, state, targetIndex, documentsIndexed.get(),
+                lastCommittedId.get(), throughput(), error, startedAt, finishedAt);
+        }
+    }
+}
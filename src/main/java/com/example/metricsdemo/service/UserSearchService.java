@@ -1,58 +1,49 @@
 package com.example.metricsdemo.service;
 
+import com.example.metricsdemo.cache.UserSnapshot;
 import com.example.metricsdemo.document.UserDocument;
 import com.example.metricsdemo.model.User;
-import com.example.metricsdemo.repository.UserSearchRepository;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.stereotype.Service;
-
-@Service
-public class UserSearchService {
-    
-    private static final Logger logger = LoggerFactory.getLogger(UserSearchService.class);
-    
-    @Autowired
-    private UserSearchRepository userSearchRepository;
-    
-    // Index a user in Elasticsearch
-    public void indexUser(User user) {
-        try {
-            UserDocument doc = new UserDocument(
-                user.getId(),
-                user.getName(),
-                user.getEmail(),
-                user.getDepartment() != null ? user.getDepartment().getName() : ""
-            );
-            userSearchRepository.save(doc);
-            logger.info("Indexed user {} in Elasticsearch", user.getId());
-        } catch (Exception e) {
-            logger.error("Failed to index user {} in Elasticsearch: {}", user.getId(), e.getMessage());
-        }
-    }
-    
-    // Fuzzy search with typo tolerance
-    public Page<UserDocument> fuzzySearch(String searchTerm, Pageable pageable) {
-        logger.info("Performing fuzzy search for: {}", searchTerm);
-        return userSearchRepository.fuzzySearch(searchTerm, pageable);
-    }
-    
-    // Delete user from index
-    public void deleteUser(Long userId) {
-        try {
-            userSearchRepository.deleteById(userId);
-            logger.info("Deleted user {} from Elasticsearch", userId);
-        } catch (Exception e) {
-            logger.error("Failed to delete user {} from Elasticsearch: {}", userId, e.getMessage());
-        }
-    }
-    
-    // Reindex all users
-    public void reindexAll(Iterable<User> users) {
-        logger.info("Reindexing all users in Elasticsearch");
-        users.forEach(this::indexUser);
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Full-text user search. The engine is chosen with app.search.engine:
+ * "elasticsearch" (default, {@link ElasticsearchUserSearchService}) or
+ * "embedded" (in-process index, {@link EmbeddedUserSearchService}).
+ */
+public interface UserSearchService {
+
+    // Index a single user; failures are logged, not thrown
+    void indexUser(User user);
+
+    // Remove a single user; failures are logged, not thrown
+    void deleteUser(Long userId);
+
+    // Index several users at once. Failures propagate so the outbox dispatcher can retry.
+    void indexUsers(List<User> users);
+
+    // Remove several users at once. Failures propagate like indexUsers.
+    void deleteUsers(Collection<Long> userIds);
+
+    // Replace the index contents with the given users
+    void reindexAll(Iterable<User> users);
+
+    // Fuzzy search with typo tolerance across name (boosted x2), email and department name
+    Page<UserDocument> fuzzySearch(String searchTerm, Pageable pageable);
+
+    // The document carries every UserDTO field, so search results can be served from it alone
+    default UserDocument toDocument(UserSnapshot snapshot) {
+        return new UserDocument(
+            snapshot.getId(),
+            snapshot.getUsername(),
+            snapshot.getName(),
+            snapshot.getEmail(),
+            snapshot.getDepartmentId(),
+            snapshot.getDepartmentName() != null ? snapshot.getDepartmentName() : "",
+            snapshot.getRoles()
+        );
     }
 }
@@ -1,24 +1,49 @@
 package com.example.metricsdemo.service;
 
+import com.example.metricsdemo.cache.UserSnapshot;
+import com.example.metricsdemo.dto.CachePurgeResult;
+import com.example.metricsdemo.exception.SearchUnavailableException;
 import com.example.metricsdemo.exception.UserNotFoundException;
 import com.example.metricsdemo.model.*;
 import com.example.metricsdemo.repository.*;
+import com.example.metricsdemo.security.AuthenticationCache;
+import com.example.metricsdemo.security.TokenService;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -47,16 +72,72 @@ public class UserService {
     @Autowired
     private UserSearchService userSearchService;
     
+    @Autowired
+    private SearchOutboxService searchOutboxService;
+    
+    @Autowired
+    private SearchCircuitBreaker searchCircuitBreaker;
+    
     @Autowired
     private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    
+    @Autowired
+    private TokenService tokenService;
+    
+    @Autowired
+    private ThreadPoolTaskExecutor cacheRefreshExecutor;
+    
+    @Autowired
+    private PostCommitEffects postCommitEffects;
+    
+    // Where search results come from: "database" (hydrate hits from cache/PostgreSQL) or "index" (_source only)
+    @Value("${app.search.source:database}")
+    private String searchSource;
+    
+    // How users_total is reconciled with the table: "exact" (count(*)) or "estimate" (pg_class.reltuples)
+    @Value("${app.metrics.users-total.reconcile-mode:exact}")
+    private String userCountReconcileMode;
+    
+    // In-memory user count behind users_total: adjusted after each committed create/delete,
+    // reconciled periodically. -1 until the first reconcile.
+    private final AtomicLong userCount = new AtomicLong(-1);
+    
+    // Whether the pg_trgm indexes from V5 can serve searchUsers; checked once, lazily
+    private volatile Boolean trigramSearchAvailable;
+    
+    // Single-flight registry: at most one database load per user id at a time
+    private final ConcurrentHashMap<Long, CompletableFuture<UserSnapshot>> inFlightLoads = new ConcurrentHashMap<>();
+    
+    private final Counter coalescedWaiterCounter;
+    private final Counter earlyRefreshCounter;
+    private final Counter searchFallbackCounter;
 
     public UserService(UserRepository userRepository, MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
         
-        // Register a gauge to track total number of users
+        // Register a gauge to track total number of users - served from memory, never queries on scrape
         Gauge.builder("users_total", this, UserService::getUserCount)
                 .description("Total number of users in the system")
                 .register(meterRegistry);
+        
+        this.coalescedWaiterCounter = Counter.builder("user_cache_coalesced_waiters_total")
+                .description("Total number of cache misses that waited on another request's database load")
+                .register(meterRegistry);
+        
+        this.earlyRefreshCounter = Counter.builder("user_cache_early_refreshes_total")
+                .description("Total number of users reloaded ahead of cache expiry")
+                .register(meterRegistry);
+        
+        this.searchFallbackCounter = Counter.builder("search_fallbacks_total")
+                .description("Total number of searches served by PostgreSQL because Elasticsearch was unavailable")
+                .register(meterRegistry);
+        
+        Gauge.builder("user_cache_inflight_loads", inFlightLoads, ConcurrentHashMap::size)
+                .description("Number of user database loads currently in flight")
+                .register(meterRegistry);
     }
 
     public List<User> getAllUsers() {
@@ -74,29 +155,174 @@ public class UserService {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * Keyset page of users with id greater than afterId, in id order. Seeks on the primary
+     * key instead of using OFFSET and skips count(*), so every page costs the same as the first.
+     */
+    public Slice<User> getUsersAfter(long afterId, int size) {
+        // One extra id tells us whether there is a next page
+        List<Long> ids = userRepository.findIdsAfter(afterId, PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        
+        List<User> users = pageIds.isEmpty() ? List.of() : userRepository.findAllWithDetailsByIdIn(pageIds).stream()
+            .sorted(Comparator.comparing(User::getId))
+            .toList();
+        return new SliceImpl<>(users, PageRequest.of(0, size), hasNext);
+    }
+
     public Page<User> searchUsers(String searchTerm, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
+        if (isTrigramSearchAvailable()) {
+            String pattern = "%" + escapeLike(searchTerm.toLowerCase(Locale.ROOT)) + "%";
+            return userRepository.searchUsersIndexed(pattern, parseUserId(searchTerm), pageable);
+        }
+        // No pg_trgm (or not PostgreSQL) - plain LIKE query, sequential scan
         return userRepository.searchUsers(searchTerm, pageable);
     }
+    
+    private boolean isTrigramSearchAvailable() {
+        Boolean available = trigramSearchAvailable;
+        if (available == null) {
+            try {
+                available = userRepository.isTrigramExtensionInstalled();
+            } catch (RuntimeException e) {
+                available = false;
+            }
+            if (!available) {
+                logger.warn("pg_trgm is not installed - SQL user search falls back to unindexed LIKE queries");
+            }
+            trigramSearchAvailable = available;
+        }
+        return available;
+    }
+    
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    // -1 never matches a user id
+    private static long parseUserId(String term) {
+        try {
+            return Long.parseLong(term.trim());
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
 
-    public User getUserById(Long id) {
+    public UserSnapshot getUserById(Long id) {
         // Try to get from cache first
-        User cachedUser = userCacheService.getCachedUser(id);
+        UserSnapshot cachedUser = userCacheService.getCachedUser(id);
         if (cachedUser != null) {
+            if (userCacheService.shouldRefreshEarly(cachedUser)) {
+                refreshInBackground(cachedUser);
+            }
             return cachedUser;
         }
         
-        // If not in cache, get from database
+        // Not in cache - concurrent misses for the same id share one database load
+        CompletableFuture<UserSnapshot> load = new CompletableFuture<>();
+        CompletableFuture<UserSnapshot> inFlight = inFlightLoads.putIfAbsent(id, load);
+        if (inFlight != null) {
+            coalescedWaiterCounter.increment();
+            logger.info("Joining in-flight load of user {}", id);
+            return awaitLoad(id, inFlight);
+        }
+        
+        try {
+            UserSnapshot snapshot = loadSnapshot(id);
+            // Cache the snapshot for future requests
+            userCacheService.cacheUserIfAbsent(snapshot);
+            load.complete(snapshot);
+            return snapshot;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(id, load);
+        }
+    }
+    
+    private UserSnapshot loadSnapshot(Long id) {
         logger.info("Fetching user {} from PostgreSQL database", id);
-        Optional<User> user = userRepository.findById(id);
-        if (user.isPresent()) {
-            // Cache the user for future requests
-            userCacheService.cacheUser(user.get());
-            return user.get();
+        long start = System.nanoTime();
+        User user = userRepository.findWithDetailsById(id)
+            // User not found - throw exception
+            .orElseThrow(() -> new UserNotFoundException(id));
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return UserSnapshot.from(user).withLoadMillis(loadMillis);
+    }
+    
+    private UserSnapshot awaitLoad(Long id, CompletableFuture<UserSnapshot> load) {
+        try {
+            return load.join();
+        } catch (CancellationException e) {
+            // The load we joined was a background refresh that never got to run
+            return loadSnapshot(id);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    // Reloads a user that is about to expire, at most once at a time per id. The reload only
+    // replaces the entry that triggered it - if the user was written meanwhile, it is dropped.
+    private void refreshInBackground(UserSnapshot current) {
+        Long id = current.getId();
+        CompletableFuture<UserSnapshot> refresh = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(id, refresh) != null) {
+            return;
         }
         
-        // User not found - throw exception
-        throw new UserNotFoundException(id);
+        try {
+            cacheRefreshExecutor.execute(() -> {
+                try {
+                    UserSnapshot snapshot = loadSnapshot(id);
+                    if (userCacheService.replaceSnapshotIfUnchanged(current, snapshot)) {
+                        earlyRefreshCounter.increment();
+                        logger.info("Refreshed user {} ahead of cache expiry", id);
+                    }
+                    refresh.complete(snapshot);
+                } catch (RuntimeException e) {
+                    logger.warn("Early refresh of user {} failed: {}", id, e.getMessage());
+                    refresh.completeExceptionally(e);
+                } finally {
+                    inFlightLoads.remove(id, refresh);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Refresh pool is saturated - the entry will just expire normally
+            inFlightLoads.remove(id, refresh);
+            refresh.cancel(false);
+        }
+    }
+
+    /**
+     * Resolves a list of users in request order: one MGET against the cache, one
+     * query for all misses, and one pipeline to write the misses back. Unknown ids are skipped.
+     */
+    public List<UserSnapshot> getUsersByIds(List<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, UserSnapshot> resolved = new HashMap<>(userCacheService.getCachedUsers(distinctIds));
+        
+        List<Long> missing = distinctIds.stream()
+            .filter(id -> !resolved.containsKey(id))
+            .toList();
+        if (!missing.isEmpty()) {
+            logger.info("Fetching {} users from PostgreSQL database in one query", missing.size());
+            List<UserSnapshot> loaded = userRepository.findAllWithDetailsByIdIn(missing).stream()
+                .map(UserSnapshot::from)
+                .toList();
+            userCacheService.cacheUsersIfAbsent(loaded);
+            loaded.forEach(snapshot -> resolved.put(snapshot.getId(), snapshot));
+        }
+        
+        return distinctIds.stream()
+            .map(resolved::get)
+            .filter(Objects::nonNull)
+            .toList();
     }
 
     @Transactional
@@ -148,10 +374,12 @@ public class UserService {
         // Save user again to update relationships
         savedUser = userRepository.save(savedUser);
         
-        // Cache the newly created user
-        userCacheService.cacheUser(savedUser);
-        // Index in Elasticsearch
-        userSearchService.indexUser(savedUser);
+        // Drop any stale entry once the user is visible; the first read caches it
+        evictFromCacheAfterCommit(savedUser.getId());
+        // Queue for Elasticsearch - indexed asynchronously once this transaction commits
+        searchOutboxService.enqueueIndex(savedUser.getId());
+        
+        adjustUserCountAfterCommit(1);
         
         logger.info("Created user: {} with roles: {}", username, roleNames);
         return savedUser;
@@ -185,6 +413,7 @@ public class UserService {
                 if (credentials != null) {
                     credentials.setPassword(passwordEncoder.encode(password));
                     userCredentialsRepository.save(credentials);
+                    invalidateAuthenticationAfterCommit(credentials.getUsername());
                 }
             }
             
@@ -200,6 +429,9 @@ public class UserService {
                         .orElseThrow(() -> new RuntimeException("Role not found: " + roleName));
                     user.addRole(role);
                 }
+                if (user.getCredentials() != null) {
+                    invalidateAuthenticationAfterCommit(user.getCredentials().getUsername());
+                }
             }
             
             User updatedUser = userRepository.save(user);
@@ -209,12 +441,11 @@ public class UserService {
                 updatedUser.getName(), updatedUser.getEmail(), 
                 updatedUser.getDepartment() != null ? updatedUser.getDepartment().getName() : "null");
             
-            // Update cache with new user data
-            userCacheService.cacheUser(updatedUser);
-            logger.info("Updated user {} cached in Redis", id);
+            // Drop the cached user; the next read caches the committed state
+            evictFromCacheAfterCommit(id);
             
-            // Update Elasticsearch index
-            userSearchService.indexUser(updatedUser);
+            // Queue the Elasticsearch update
+            searchOutboxService.enqueueIndex(id);
             
             return updatedUser;
         }
@@ -241,17 +472,21 @@ public class UserService {
             }
             
             // Delete credentials (cascade will handle UserRole)
-            userCredentialsRepository.findByUserId(id).ifPresent(userCredentialsRepository::delete);
+            userCredentialsRepository.findByUserId(id).ifPresent(credentials -> {
+                userCredentialsRepository.delete(credentials);
+                invalidateAuthenticationAfterCommit(credentials.getUsername());
+            });
             
             userRepository.deleteById(id);
             logger.info("User deleted successfully - ID: {}, Name: {}", id, userName);
             
             // Remove from cache
-            userCacheService.evictUser(id);
-            logger.info("User {} evicted from Redis cache", id);
+            evictFromCacheAfterCommit(id);
+            
+            // Queue removal from Elasticsearch
+            searchOutboxService.enqueueDelete(id);
             
-            // Remove from Elasticsearch
-            userSearchService.deleteUser(id);
+            adjustUserCountAfterCommit(-1);
             
             return true;
         }
@@ -262,7 +497,59 @@ public class UserService {
     }
 
     public double getUserCount() {
-        return userRepository.count();
+        long count = userCount.get();
+        return count >= 0 ? count : Double.NaN;
+    }
+    
+    // Replaces the in-memory count with the database's view. Also picks up rows written
+    // outside this service (DataInitializer, imports, other instances).
+    @Scheduled(initialDelay = 0, fixedDelayString = "${app.metrics.users-total.reconcile-interval-ms:60000}")
+    public void reconcileUserCount() {
+        try {
+            long count;
+            if ("estimate".equals(userCountReconcileMode)) {
+                // reltuples is -1 until the table has been vacuumed or analyzed
+                Long estimate = userRepository.estimateRowCount();
+                count = estimate != null && estimate >= 0 ? estimate : userRepository.count();
+            } else {
+                count = userRepository.count();
+            }
+            long previous = userCount.getAndSet(count);
+            if (previous >= 0 && previous != count) {
+                logger.info("Reconciled users_total: {} -> {}", previous, count);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not reconcile users_total: {}", e.getMessage());
+        }
+    }
+    
+    // Must be called inside the transaction that writes the users
+    void adjustUserCountAfterCommit(long delta) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userCount.updateAndGet(count -> count >= 0 ? Math.max(0, count + delta) : count);
+            }
+        });
+    }
+    
+    // Cached logins and issued tokens must not outlive a password or role change. After commit,
+    // so a concurrent login cannot re-cache or re-issue the old state before the change is visible.
+    private void invalidateAuthenticationAfterCommit(String username) {
+        postCommitEffects.afterCommit("auth", () -> {
+            authenticationCache.invalidate(username);
+            tokenService.revoke(username);
+        });
+    }
+    
+    // Evict rather than write the new snapshot: effects of different transactions may run in any
+    // order (parallel/async), and a late SET of an older snapshot would stick for the whole TTL.
+    // An eviction is idempotent, and the next read refills the entry with SET NX.
+    private void evictFromCacheAfterCommit(Long id) {
+        postCommitEffects.afterCommit("cache", () -> {
+            userCacheService.evictUser(id);
+            logger.info("User {} evicted from Redis cache", id);
+        });
     }
     
     public Department getDepartmentById(Long id) {
@@ -276,19 +563,43 @@ public class UserService {
     
     public Page<?> fuzzySearchUsers(String searchTerm, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return userSearchService.fuzzySearch(searchTerm, pageable);
+        // Raw documents only exist in Elasticsearch - no fallback, SearchUnavailableException maps to 503
+        return searchCircuitBreaker.execute(() -> userSearchService.fuzzySearch(searchTerm, pageable));
     }
     
-    public Page<User> fuzzySearchUsersAsUsers(String searchTerm, int page, int size) {
+    public Page<UserSnapshot> fuzzySearchUsersAsUsers(String searchTerm, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Page<com.example.metricsdemo.document.UserDocument> searchResults = 
-            userSearchService.fuzzySearch(searchTerm, pageable);
+        Page<com.example.metricsdemo.document.UserDocument> searchResults;
+        try {
+            searchResults = searchCircuitBreaker.execute(() -> userSearchService.fuzzySearch(searchTerm, pageable));
+        } catch (SearchUnavailableException e) {
+            // Elasticsearch is slow or down - degrade to the SQL substring search (no typo tolerance)
+            searchFallbackCounter.increment();
+            logger.warn("Falling back to PostgreSQL search for '{}': {}", searchTerm, e.getMessage());
+            Page<User> sqlResults = searchUsers(searchTerm, page, size);
+            // Search rows carry no fetch graph - resolve them through the cache / one bulk query instead
+            List<Long> ids = sqlResults.getContent().stream().map(User::getId).toList();
+            return new org.springframework.data.domain.PageImpl<>(
+                getUsersByIds(ids),
+                pageable,
+                sqlResults.getTotalElements()
+            );
+        }
         
-        // Convert UserDocument to User entities with full data from database
-        List<User> users = searchResults.getContent().stream()
-            .map(doc -> userRepository.findById(doc.getId()).orElse(null))
-            .filter(user -> user != null)
-            .toList();
+        List<UserSnapshot> users;
+        if ("index".equals(searchSource)) {
+            // Build the response entirely from the enriched documents - zero database load
+            users = searchResults.getContent().stream()
+                .map(UserSnapshot::from)
+                .toList();
+        } else {
+            // Hydrate all hits at once (cache first, then one query for the rest),
+            // keeping Elasticsearch's relevance order
+            List<Long> hitIds = searchResults.getContent().stream()
+                .map(com.example.metricsdemo.document.UserDocument::getId)
+                .toList();
+            users = getUsersByIds(hitIds);
+        }
         
         return new org.springframework.data.domain.PageImpl<>(
             users,
@@ -297,10 +608,8 @@ public class UserService {
         );
     }
     
-    public long reindexAllUsers() {
-        List<User> allUsers = userRepository.findAll();
-        userSearchService.reindexAll(allUsers);
-        return allUsers.size();
+    public CachePurgeResult purgeUserCache() {
+        return userCacheService.evictAllUsers();
     }
     
     // Authentication-specific methods
@@ -334,11 +643,18 @@ public class UserService {
             
             User updatedUser = userRepository.save(user);
             
+            if (user.getCredentials() != null) {
+                invalidateAuthenticationAfterCommit(user.getCredentials().getUsername());
+            }
+            
             logger.info("User roles updated successfully - ID: {}, Old roles: {}, New roles: {}", 
                 id, oldRoles, roleNames);
             
-            // Update cache
-            userCacheService.cacheUser(updatedUser);
+            // Drop the cached user; the next read caches the committed state
+            evictFromCacheAfterCommit(id);
+            
+            // Roles are part of the search document - keep the index in step
+            searchOutboxService.enqueueIndex(id);
             
             return updatedUser;
         }
@@ -0,0 +1,30 @@
+package com.example.metricsdemo.simulation;
+
+import java.util.Locale;
+
+// Shape of the injected delay. Parameters come from SimulationProfile.
+public enum LatencyDistribution {
+    // No delay
+    NONE,
+    // Always delay
+    FIXED,
+    // Evenly spread between min and max
+    UNIFORM,
+    // Right-skewed around median, sigma sets the spread - typical of real service latency
+    LOG_NORMAL,
+    // Heavy tail starting at min, shape (alpha) sets how heavy - rare but very slow requests
+    PARETO;
+
+    // Accepts the property spelling, e.g. "log-normal"
+    public static LatencyDistribution parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown latency distribution: " + value);
+        }
+    }
+
+    public String propertyName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.metricsdemo.simulation;
+
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runtime control of the load simulator (ADMIN only):
+ * - GET    /actuator/loadsimulation              current switch and profiles
+ * - POST   /actuator/loadsimulation              {"enabled": true|false}
+ * - POST   /actuator/loadsimulation/{endpoint}   change a profile ("default" for the fallback);
+ *   omitted fields keep their current value, durations are in milliseconds
+ * - DELETE /actuator/loadsimulation[/{endpoint}] back to the app.simulation.* configuration
+ */
+@Component
+@Endpoint(id = "loadsimulation")
+public class LoadSimulationEndpoint {
+
+    private final LoadSimulator loadSimulator;
+
+    public LoadSimulationEndpoint(LoadSimulator loadSimulator) {
+        this.loadSimulator = loadSimulator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        loadSimulator.getEndpointProfiles().forEach((endpoint, profile) -> endpoints.put(endpoint, profile.describe()));
+
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", loadSimulator.isEnabled());
+        settings.put(LoadSimulator.DEFAULT_PROFILE, loadSimulator.profileFor(LoadSimulator.DEFAULT_PROFILE).describe());
+        settings.put("endpoints", endpoints);
+        return settings;
+    }
+
+    @WriteOperation
+    public Map<String, Object> toggle(boolean enabled) {
+        loadSimulator.setEnabled(enabled);
+        return settings();
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Selector String endpoint,
+                                         @Nullable String distribution,
+                                         @Nullable String mode,
+                                         @Nullable Long delayMs,
+                                         @Nullable Long minMs,
+                                         @Nullable Long maxMs,
+                                         @Nullable Long medianMs,
+                                         @Nullable Double sigma,
+                                         @Nullable Double shape,
+                                         @Nullable Double errorRate) {
+        SimulationProfile current = loadSimulator.profileFor(endpoint);
+        try {
+            SimulationProfile updated = new SimulationProfile(
+                distribution != null ? LatencyDistribution.parse(distribution) : current.distribution(),
+                mode != null ? SimulationMode.parse(mode) : current.mode(),
+                delayMs != null ? Duration.ofMillis(delayMs) : current.delay(),
+                minMs != null ? Duration.ofMillis(minMs) : current.min(),
+                maxMs != null ? Duration.ofMillis(maxMs) : current.max(),
+                medianMs != null ? Duration.ofMillis(medianMs) : current.median(),
+                sigma != null ? sigma : current.sigma(),
+                shape != null ? shape : current.shape(),
+                errorRate != null ? errorRate : current.errorRate());
+            loadSimulator.setProfile(endpoint, updated);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+        return settings();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> resetAll() {
+        loadSimulator.resetAll();
+        return settings();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> reset(@Selector String endpoint) {
+        loadSimulator.reset(endpoint);
+        return settings();
+    }
+}
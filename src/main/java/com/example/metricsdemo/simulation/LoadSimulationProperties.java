@@ -0,0 +1,138 @@
+package com.example.metricsdemo.simulation;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// app.simulation.* - the startup configuration of LoadSimulator. Runtime changes made through
+// /actuator/loadsimulation are not written back here.
+@Component
+@ConfigurationProperties(prefix = "app.simulation")
+public class LoadSimulationProperties {
+
+    // Master switch for injection into the regular endpoints (/slow always applies its profile)
+    private boolean enabled = false;
+
+    // Profile for endpoints without their own entry
+    private Profile defaultProfile = new Profile();
+
+    // Per-endpoint profiles, keyed by the names UserController passes to LoadSimulator
+    private Map<String, Profile> endpoints = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // Bound from app.simulation.default
+    public Profile getDefault() {
+        return defaultProfile;
+    }
+
+    public void setDefault(Profile defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+
+    public Map<String, Profile> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(Map<String, Profile> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public static class Profile {
+        private String distribution = "none";
+        private String mode = "sleep";
+        private Duration delay = Duration.ZERO;
+        private Duration min = Duration.ZERO;
+        private Duration max = Duration.ofSeconds(10);
+        private Duration median = Duration.ofMillis(100);
+        private double sigma = 0.5;
+        private double shape = 1.5;
+        private double errorRate = 0;
+
+        public SimulationProfile toSimulationProfile() {
+            return new SimulationProfile(LatencyDistribution.parse(distribution), SimulationMode.parse(mode),
+                delay, min, max, median, sigma, shape, errorRate);
+        }
+
+        public String getDistribution() {
+            return distribution;
+        }
+
+        public void setDistribution(String distribution) {
+            this.distribution = distribution;
+        }
+
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public Duration getDelay() {
+            return delay;
+        }
+
+        public void setDelay(Duration delay) {
+            this.delay = delay;
+        }
+
+        public Duration getMin() {
+            return min;
+        }
+
+        public void setMin(Duration min) {
+            this.min = min;
+        }
+
+        public Duration getMax() {
+            return max;
+        }
+
+        public void setMax(Duration max) {
+            this.max = max;
+        }
+
+        public Duration getMedian() {
+            return median;
+        }
+
+        public void setMedian(Duration median) {
+            this.median = median;
+        }
+
+        public double getSigma() {
+            return sigma;
+        }
+
+        public void setSigma(double sigma) {
+            this.sigma = sigma;
+        }
+
+        public double getShape() {
+            return shape;
+        }
+
+        public void setShape(double shape) {
+            this.shape = shape;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public void setErrorRate(double errorRate) {
+            this.errorRate = errorRate;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.metricsdemo.simulation;
+
+import com.example.metricsdemo.exception.SimulatedFailureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and fault injection for the user endpoints.
+ *
+ * Off by default, so the latencies we scrape are the application's own. When enabled, each
+ * endpoint draws a delay from its profile (app.simulation.endpoints.<name>, else
+ * app.simulation.default), spends it sleeping or burning CPU, and then fails with the
+ * profile's error rate. Everything can be changed at runtime through /actuator/loadsimulation.
+ *
+ * Injected work is visible in metrics: simulation_injected_delay{endpoint,mode},
+ * simulation_injected_errors_total{endpoint}, and a simulated=none|delay|error tag on
+ * http_server_requests so dashboards can filter it out.
+ */
+@Component
+public class LoadSimulator {
+
+    public static final String DEFAULT_PROFILE = "default";
+
+    // Request attribute read by SimulationObservationConvention: "delay" or "error"
+    public static final String INJECTED_ATTRIBUTE = LoadSimulator.class.getName() + ".injected";
+
+    private final LoadSimulationProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private volatile boolean enabled;
+    private volatile SimulationProfile defaultProfile;
+    private final Map<String, SimulationProfile> endpointProfiles = new ConcurrentHashMap<>();
+
+    // Keeps the CPU burn loop from being optimised away
+    private volatile long burnSink;
+
+    public LoadSimulator(LoadSimulationProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        resetAll();
+
+        Gauge.builder("simulation_enabled", this, simulator -> simulator.isEnabled() ? 1 : 0)
+                .description("Whether latency/fault injection into the regular endpoints is on (1) or off (0)")
+                .register(meterRegistry);
+    }
+
+    // Injection for a regular endpoint - a no-op unless simulation is enabled
+    public void apply(String endpoint) {
+        if (enabled) {
+            inject(endpoint, profileFor(endpoint));
+        }
+    }
+
+    // For endpoints that exist only to be slow (/slow) - applies the profile even when disabled
+    public void simulate(String endpoint) {
+        inject(endpoint, profileFor(endpoint));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public SimulationProfile profileFor(String endpoint) {
+        return endpointProfiles.getOrDefault(endpoint, defaultProfile);
+    }
+
+    public void setProfile(String endpoint, SimulationProfile profile) {
+        if (DEFAULT_PROFILE.equals(endpoint)) {
+            defaultProfile = profile;
+        } else {
+            endpointProfiles.put(endpoint, profile);
+        }
+    }
+
+    // Back to app.simulation.* for one endpoint
+    public void reset(String endpoint) {
+        if (DEFAULT_PROFILE.equals(endpoint)) {
+            defaultProfile = properties.getDefault().toSimulationProfile();
+            return;
+        }
+        LoadSimulationProperties.Profile configured = properties.getEndpoints().get(endpoint);
+        if (configured != null) {
+            endpointProfiles.put(endpoint, configured.toSimulationProfile());
+        } else {
+            endpointProfiles.remove(endpoint);
+        }
+    }
+
+    // Back to app.simulation.* for everything, including the master switch
+    public void resetAll() {
+        endpointProfiles.clear();
+        properties.getEndpoints().forEach((endpoint, profile) -> endpointProfiles.put(endpoint, profile.toSimulationProfile()));
+        defaultProfile = properties.getDefault().toSimulationProfile();
+        enabled = properties.isEnabled();
+    }
+
+    public Map<String, SimulationProfile> getEndpointProfiles() {
+        return new TreeMap<>(endpointProfiles);
+    }
+
+    private void inject(String endpoint, SimulationProfile profile) {
+        if (!profile.isActive()) {
+            return;
+        }
+        // ThreadLocalRandom - no contention between request threads
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long delayNanos = profile.sampleDelayNanos(random);
+        if (delayNanos > 0) {
+            markRequest("delay");
+            if (profile.mode() == SimulationMode.CPU) {
+                burnCpu(delayNanos);
+            } else {
+                sleep(delayNanos);
+            }
+            Timer.builder("simulation_injected_delay")
+                    .description("Delay injected into requests by the load simulator")
+                    .tag("endpoint", endpoint)
+                    .tag("mode", profile.mode().propertyName())
+                    .register(meterRegistry)
+                    .record(delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (profile.errorRate() > 0 && random.nextDouble() < profile.errorRate()) {
+            markRequest("error");
+            Counter.builder("simulation_injected_errors_total")
+                    .description("Failures injected into requests by the load simulator")
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry)
+                    .increment();
+            throw new SimulatedFailureException(endpoint);
+        }
+    }
+
+    private static void markRequest(String effect) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(INJECTED_ATTRIBUTE, effect, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Keeps the request thread on a core for the whole delay
+    private void burnCpu(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long x = burnSink;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+        }
+        burnSink = x;
+    }
+}
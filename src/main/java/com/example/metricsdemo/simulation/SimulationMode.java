@@ -0,0 +1,23 @@
+package com.example.metricsdemo.simulation;
+
+import java.util.Locale;
+
+// How an injected delay is spent
+public enum SimulationMode {
+    // Thread.sleep - the request thread is blocked but idle, like waiting on I/O
+    SLEEP,
+    // Busy loop - the request thread keeps a core busy, like expensive computation
+    CPU;
+
+    public static SimulationMode parse(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown simulation mode: " + value);
+        }
+    }
+
+    public String propertyName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
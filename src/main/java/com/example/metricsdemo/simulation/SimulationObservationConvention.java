@@ -0,0 +1,21 @@
+package com.example.metricsdemo.simulation;
+
+import io.micrometer.common.KeyValues;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+// Adds simulated=none|delay|error to http_server_requests, so injected latency and failures
+// can be told apart from real ones (Boot picks this up in place of the default convention)
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SimulationObservationConvention extends DefaultServerRequestObservationConvention {
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ServerRequestObservationContext context) {
+        Object injected = context.getCarrier().getAttribute(LoadSimulator.INJECTED_ATTRIBUTE);
+        return super.getLowCardinalityKeyValues(context)
+            .and("simulated", injected != null ? injected.toString() : "none");
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.metricsdemo.simulation;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Latency and fault injection for one endpoint: a delay drawn from the distribution, spent
+ * sleeping or burning CPU, then a failure with probability errorRate.
+ *
+ * delay is the FIXED value; min/max bound UNIFORM; median/sigma shape LOG_NORMAL; PARETO starts
+ * at min with tail index shape. max also caps the heavy-tailed distributions.
+ */
+public record SimulationProfile(LatencyDistribution distribution,
+                                SimulationMode mode,
+                                Duration delay,
+                                Duration min,
+                                Duration max,
+                                Duration median,
+                                double sigma,
+                                double shape,
+                                double errorRate) {
+
+    public SimulationProfile {
+        if (delay.isNegative() || min.isNegative() || max.isNegative() || median.isNegative()) {
+            throw new IllegalArgumentException("Simulated delays cannot be negative");
+        }
+        if (min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("Simulated delay min must not exceed max");
+        }
+        if (sigma < 0) {
+            throw new IllegalArgumentException("Log-normal sigma cannot be negative");
+        }
+        if (shape <= 0) {
+            throw new IllegalArgumentException("Pareto shape must be positive");
+        }
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1");
+        }
+    }
+
+    public boolean isActive() {
+        return distribution != LatencyDistribution.NONE || errorRate > 0;
+    }
+
+    public long sampleDelayNanos(Random random) {
+        long minNanos = min.toNanos();
+        long maxNanos = max.toNanos();
+        return switch (distribution) {
+            case NONE -> 0;
+            case FIXED -> delay.toNanos();
+            case UNIFORM -> minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+            case LOG_NORMAL -> Math.min(maxNanos, (long) (median.toNanos() * Math.exp(sigma * random.nextGaussian())));
+            // Inverse CDF; 1 - u is in (0, 1], so the sample is always >= min
+            case PARETO -> Math.min(maxNanos, (long) (minNanos / Math.pow(1 - random.nextDouble(), 1 / shape)));
+        };
+    }
+
+    // Actuator view - only the parameters the distribution uses
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("distribution", distribution.propertyName());
+        switch (distribution) {
+            case FIXED -> description.put("delayMs", delay.toMillis());
+            case UNIFORM -> {
+                description.put("minMs", min.toMillis());
+                description.put("maxMs", max.toMillis());
+            }
+            case LOG_NORMAL -> {
+                description.put("medianMs", median.toMillis());
+                description.put("sigma", sigma);
+                description.put("maxMs", max.toMillis());
+            }
+            case PARETO -> {
+                description.put("minMs", min.toMillis());
+                description.put("shape", shape);
+                description.put("maxMs", max.toMillis());
+            }
+            case NONE -> {
+            }
+        }
+        description.put("mode", mode.propertyName());
+        description.put("errorRate", errorRate);
+        return description;
+    }
+}
@@ -0,0 +1,17 @@
+-- Migration to add the search index outbox
+-- Rows are written in the same transaction as the user change and drained by
+-- SearchOutboxService, which sends them to Elasticsearch in _bulk batches
+
+CREATE TABLE IF NOT EXISTS userschema.search_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT now(),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT now(),
+    last_error VARCHAR(500),
+    CONSTRAINT chk_search_outbox_operation CHECK (operation IN ('INDEX', 'DELETE'))
+);
+
+-- The dispatcher claims due rows in id order
+CREATE INDEX IF NOT EXISTS idx_search_outbox_next_attempt ON userschema.search_outbox(next_attempt_at, id);
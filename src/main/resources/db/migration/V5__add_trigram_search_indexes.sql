@@ -0,0 +1,25 @@
+-- Migration to make substring search (UserRepository.searchUsersIndexed) index-assisted
+-- LOWER(col) LIKE '%term%' cannot use a btree index; a pg_trgm GIN index on the same
+-- expression can. If pg_trgm cannot be installed (e.g. missing contrib package or no
+-- privilege) the migration still succeeds and the application keeps the plain LIKE query.
+
+DO $$
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+EXCEPTION WHEN OTHERS THEN
+    RAISE NOTICE 'pg_trgm is not available (%), substring search will use sequential scans', SQLERRM;
+END
+$$;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        EXECUTE 'CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON userschema.users USING gin (lower(name) gin_trgm_ops)';
+        EXECUTE 'CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON userschema.users USING gin (lower(email) gin_trgm_ops)';
+        EXECUTE 'CREATE INDEX IF NOT EXISTS idx_departments_name_trgm ON userschema.departments USING gin (lower(name) gin_trgm_ops)';
+    END IF;
+END
+$$;
+
+-- Lets the department arm of the search go from matching departments to their users
+CREATE INDEX IF NOT EXISTS idx_users_department_id ON userschema.users(department_id);
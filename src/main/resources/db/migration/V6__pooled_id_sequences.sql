@@ -0,0 +1,10 @@
+-- Migration to switch users, user_credentials and user_roles to pooled sequence ids
+-- Each nextval now reserves a block of 50 ids (the returned value is the top of the block),
+-- matching allocationSize = 50 on the entities and the block allocation in UserImportService.
+-- Inserts that rely on the column default still get a unique id (the top of a fresh block).
+-- The sequences are named as in the entities' @SequenceGenerator: on a schema created by
+-- ddl-auto the id columns have no default, so they cannot be found via pg_get_serial_sequence.
+
+ALTER SEQUENCE IF EXISTS userschema.users_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS userschema.user_credentials_id_seq INCREMENT BY 50;
+ALTER SEQUENCE IF EXISTS userschema.user_roles_id_seq INCREMENT BY 50;
@@ -0,0 +1,90 @@
+package com.example.metricsdemo.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BkTreeTest {
+
+    @Test
+    void distancesCountTranspositionsOnlyForOsa() {
+        assertThat(BkTree.levenshtein("john", "jhon")).isEqualTo(2);
+        assertThat(BkTree.osa("john", "jhon", Integer.MAX_VALUE)).isEqualTo(1);
+        assertThat(BkTree.levenshtein("kitten", "sitting")).isEqualTo(3);
+        assertThat(BkTree.osa("kitten", "sitting", Integer.MAX_VALUE)).isEqualTo(3);
+        // OSA is not a metric: d(ca, abc) = 3 > d(ca, ac) + d(ac, abc) = 2
+        assertThat(BkTree.osa("ca", "abc", Integer.MAX_VALUE)).isEqualTo(3);
+    }
+
+    @Test
+    void findsMatchBehindAChildThatOsaWouldPrune() {
+        BkTree tree = new BkTree();
+        tree.add("ca");
+        tree.add("abc");
+
+        assertThat(tree.search("ac", 1)).containsExactlyInAnyOrder(
+            new BkTree.Match("ca", 1), new BkTree.Match("abc", 1));
+    }
+
+    @Test
+    void findsTranspositionsWithinOneEdit() {
+        BkTree tree = new BkTree();
+        for (String term : List.of("john", "joan", "stark", "tony", "jon")) {
+            tree.add(term);
+        }
+
+        assertThat(tree.search("jhon", 1)).containsExactlyInAnyOrder(
+            new BkTree.Match("john", 1), new BkTree.Match("jon", 1));
+        assertThat(tree.search("tony", 0)).containsExactly(new BkTree.Match("tony", 0));
+    }
+
+    @Test
+    void ignoresDuplicateTerms() {
+        BkTree tree = new BkTree();
+        tree.add("stark");
+        tree.add("stark");
+        tree.add("start");
+
+        assertThat(tree.size()).isEqualTo(2);
+    }
+
+    @Test
+    void searchMatchesALinearScan() {
+        Random random = new Random(42);
+        List<String> vocabulary = new ArrayList<>();
+        BkTree tree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            String term = randomTerm(random);
+            vocabulary.add(term);
+            tree.add(term);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String query = randomTerm(random);
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                List<BkTree.Match> expected = new ArrayList<>();
+                for (String term : vocabulary.stream().distinct().toList()) {
+                    int distance = BkTree.osa(query, term, Integer.MAX_VALUE);
+                    if (distance <= maxDistance) {
+                        expected.add(new BkTree.Match(term, distance));
+                    }
+                }
+                assertThat(tree.search(query, maxDistance)).containsExactlyInAnyOrderElementsOf(expected);
+            }
+        }
+    }
+
+    // Short terms over a small alphabet, so transpositions and near misses are common
+    private static String randomTerm(Random random) {
+        int length = 1 + random.nextInt(6);
+        StringBuilder term = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            term.append((char) ('a' + random.nextInt(4)));
+        }
+        return term.toString();
+    }
+}
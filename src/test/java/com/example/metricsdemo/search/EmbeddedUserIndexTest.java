@@ -0,0 +1,91 @@
+package com.example.metricsdemo.search;
+
+import com.example.metricsdemo.document.UserDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedUserIndexTest {
+
+    @Test
+    void nameMatchOutranksEmailMatch() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(1L, "Bob Jones", "alice@example.com", "Engineering"),
+            new UserDocument(2L, "Alice Smith", "asmith@example.com", "Engineering"));
+
+        assertThat(ids(index.search("alice", PageRequest.of(0, 10)))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void shorterFieldOutranksLongerFieldForTheSameTerm() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(1L, "John Michael Smith", "one@example.com", "Sales"),
+            new UserDocument(2L, "John", "two@example.com", "Sales"));
+
+        assertThat(ids(index.search("john", PageRequest.of(0, 10)))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void rareTermOutweighsCommonTerm() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(1L, "Tony Smith", "a@example.com", "Sales"),
+            new UserDocument(2L, "Anna Smith", "b@example.com", "Sales"),
+            new UserDocument(3L, "Tony Stark", "c@example.com", "Sales"),
+            new UserDocument(4L, "Mary Smith", "d@example.com", "Sales"));
+
+        // "stark" is in one document and "smith" in three, so Tony Stark wins on idf
+        assertThat(ids(index.search("tony stark smith", PageRequest.of(0, 10))).get(0)).isEqualTo(3L);
+    }
+
+    @Test
+    void exactMatchOutranksFuzzyMatch() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(1L, "Jhon", "a@example.com", "Sales"),
+            new UserDocument(2L, "John", "b@example.com", "Sales"),
+            new UserDocument(3L, "Peter", "c@example.com", "Sales"));
+
+        assertThat(ids(index.search("john", PageRequest.of(0, 10)))).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void equalScoresAreOrderedByIdAndPaged() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(3L, "Tony", "c@example.com", "Sales"),
+            new UserDocument(1L, "Tony", "a@example.com", "Sales"),
+            new UserDocument(2L, "Tony", "b@example.com", "Sales"));
+
+        Page<UserDocument> page = index.search("tony", PageRequest.of(1, 2));
+        assertThat(ids(page)).containsExactly(3L);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+    }
+
+    @Test
+    void removedUserIsNoLongerFound() {
+        EmbeddedUserIndex index = index(
+            new UserDocument(1L, "Tony Stark", "a@example.com", "Sales"));
+        index.remove(1L);
+
+        assertThat(index.search("stark", PageRequest.of(0, 10))).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    void tokenizeKeepsMidWordDots() {
+        assertThat(EmbeddedUserIndex.tokenize("Tony.Stark@Example.com, O'Neil"))
+            .containsExactly("tony.stark", "example.com", "o'neil");
+    }
+
+    private static EmbeddedUserIndex index(UserDocument... documents) {
+        EmbeddedUserIndex index = new EmbeddedUserIndex();
+        index.replaceAll(List.of(documents));
+        return index;
+    }
+
+    private static List<Long> ids(Page<UserDocument> page) {
+        return page.getContent().stream().map(UserDocument::getId).toList();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.metricsdemo.service;
+
+import com.example.metricsdemo.dto.CreateUserRequest;
+import com.example.metricsdemo.dto.ImportResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UserImportServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new UserImportService(mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(importService, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(importService, "namedParameterJdbcTemplate", namedParameterJdbcTemplate);
+    }
+
+    @Test
+    void splitCsvHandlesQuotesAndEscapedQuotes() {
+        assertThat(UserImportService.splitCsv("alice,\"Smith, Alice\",\"say \"\"hi\"\"\""))
+            .containsExactly("alice", "Smith, Alice", "say \"hi\"");
+    }
+
+    @Test
+    void splitCsvKeepsTrailingEmptyField() {
+        assertThat(UserImportService.splitCsv("a,b,")).containsExactly("a", "b", "");
+        assertThat(UserImportService.splitCsv("")).containsExactly("");
+    }
+
+    @Test
+    void readCsvHeaderMapsColumnPositions() throws Exception {
+        Map<String, Integer> columns = UserImportService.readCsvHeader(
+            reader("email, username,password,name,departmentId"));
+
+        assertThat(columns).containsEntry("email", 0).containsEntry("username", 1).containsEntry("departmentId", 4);
+        assertThat(columns).doesNotContainKey("roles");
+    }
+
+    @Test
+    void readCsvHeaderRejectsMissingColumns() {
+        assertThatThrownBy(() -> UserImportService.readCsvHeader(reader("username,password,name,email")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("CSV header must contain");
+        assertThatThrownBy(() -> UserImportService.readCsvHeader(reader("")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("CSV upload is empty");
+    }
+
+    @Test
+    void validateChunkSkipsDuplicatesWithinTheUpload() {
+        when(namedParameterJdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(String.class)))
+            .thenReturn(List.of());
+        List<UserImportService.ImportRecord> chunk = List.of(
+            record(2, "alice", "alice@example.com"),
+            record(3, "alice", "other@example.com"),
+            record(4, "bob", "alice@example.com"),
+            record(5, "carol", "carol@example.com"));
+        ImportResult result = new ImportResult();
+
+        List<UserImportService.ImportRecord> valid = importService.validateChunk(
+            chunk, Map.of(1L, "Engineering"), Map.of("ROLE_USER", 1L), result);
+
+        assertThat(valid).extracting(UserImportService.ImportRecord::line).containsExactly(2, 5);
+        assertThat(result.getSkipped()).isEqualTo(2);
+        assertThat(result.getErrors()).containsExactly(
+            "line 3: skipped, duplicate username or email in upload",
+            "line 4: skipped, duplicate username or email in upload");
+    }
+
+    @Test
+    void allocateIdsSkipsTheFirstBlockOfAFreshSequence() {
+        stubIncrement("users_id_seq", 50);
+        when(jdbcTemplate.queryForList(startsWith("SELECT nextval"), eq(Long.class), eq("userschema.users_id_seq"), any()))
+            .thenReturn(List.of(1L, 51L), List.of(101L));
+
+        List<Long> ids = importService.allocateIds("users", 60);
+
+        // The block ending at 1 would start at -48; 2..51 and then 52..61 from the next block
+        assertThat(ids).containsExactlyElementsOf(LongStream.rangeClosed(2, 61).boxed().toList());
+    }
+
+    @Test
+    void allocateIdsTakesTheWholeBlockBelowEachNextval() {
+        stubIncrement("user_credentials_id_seq", 50);
+        when(jdbcTemplate.queryForList(startsWith("SELECT nextval"), eq(Long.class),
+                eq("userschema.user_credentials_id_seq"), eq(1L)))
+            .thenReturn(List.of(251L));
+
+        assertThat(importService.allocateIds("user_credentials", 3)).containsExactly(202L, 203L, 204L);
+    }
+
+    @Test
+    void allocateIdsWithIncrementOneUsesOneNextvalPerId() {
+        stubIncrement("user_roles_id_seq", 1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT nextval"), eq(Long.class),
+                eq("userschema.user_roles_id_seq"), eq(3L)))
+            .thenReturn(List.of(7L, 8L, 9L));
+
+        assertThat(importService.allocateIds("user_roles", 3)).containsExactly(7L, 8L, 9L);
+    }
+
+    @Test
+    void allocateIdsForNothingDoesNotTouchTheSequence() {
+        assertThat(importService.allocateIds("users", 0)).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void stubIncrement(String sequenceName, long increment) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), eq(sequenceName))).thenReturn(increment);
+    }
+
+    private static BufferedReader reader(String content) {
+        return new BufferedReader(new StringReader(content));
+    }
+
+    private static UserImportService.ImportRecord record(int line, String username, String email) {
+        return new UserImportService.ImportRecord(line,
+            new CreateUserRequest(username, "secret", username, email, 1L, Set.of("ROLE_USER")));
+    }
+}